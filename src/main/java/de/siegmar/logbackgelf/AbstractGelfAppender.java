@@ -22,15 +22,17 @@ package de.siegmar.logbackgelf;
 import java.io.IOException;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.UnsynchronizedAppenderBase;
 import ch.qos.logback.core.encoder.Encoder;
 
-public abstract class AbstractGelfAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+public abstract class AbstractGelfAppender extends AbstractMeteredAppender {
 
     private static final int DEFAULT_GELF_PORT = 12201;
+    private static final int DEFAULT_DNS_NEGATIVE_CACHE_TTL = 5_000;
+    private static final int DEFAULT_DNS_MAX_STALE_TIME = 3_600_000;
 
     /**
-     * IP or hostname of graylog server.
+     * IP or hostname of graylog server. GelfTcpAppender accepts a comma-separated list of multiple
+     * servers.
      */
     private String graylogHost;
 
@@ -39,8 +41,41 @@ public abstract class AbstractGelfAppender extends UnsynchronizedAppenderBase<IL
      */
     private int graylogPort = DEFAULT_GELF_PORT;
 
+    /**
+     * Time (in milliseconds) to cache the resolved addresses of the graylog server. The cache is
+     * refreshed in the background before it expires. A value of 0 disables the cache.
+     * Default: 0 (disabled).
+     */
+    private int dnsCacheTtl;
+
+    /**
+     * Time (in milliseconds) to cache a failed address resolution.
+     * Default: {@value DEFAULT_DNS_NEGATIVE_CACHE_TTL} milliseconds.
+     */
+    private int dnsNegativeCacheTtl = DEFAULT_DNS_NEGATIVE_CACHE_TTL;
+
+    /**
+     * Time (in milliseconds) the last known addresses are used after they expired, if refreshing
+     * them fails. Default: {@value DEFAULT_DNS_MAX_STALE_TIME} milliseconds.
+     */
+    private int dnsMaxStaleTime = DEFAULT_DNS_MAX_STALE_TIME;
+
+    /**
+     * If {@code true}, a sequence number ({@code _seq}) and a sender id ({@code _sender_id}) are
+     * added to every message, so lost messages can be detected downstream. Default: false.
+     */
+    private boolean sequenceNumbers;
+
+    /**
+     * Sender id added to every message if sequenceNumbers is enabled. Default: random id, generated
+     * on start.
+     */
+    private String senderId;
+
     private Encoder<ILoggingEvent> encoder;
 
+    private SequenceStamper sequenceStamper;
+
     public String getGraylogHost() {
         return graylogHost;
     }
@@ -57,6 +92,46 @@ public abstract class AbstractGelfAppender extends UnsynchronizedAppenderBase<IL
         this.graylogPort = graylogPort;
     }
 
+    public int getDnsCacheTtl() {
+        return dnsCacheTtl;
+    }
+
+    public void setDnsCacheTtl(final int dnsCacheTtl) {
+        this.dnsCacheTtl = dnsCacheTtl;
+    }
+
+    public int getDnsNegativeCacheTtl() {
+        return dnsNegativeCacheTtl;
+    }
+
+    public void setDnsNegativeCacheTtl(final int dnsNegativeCacheTtl) {
+        this.dnsNegativeCacheTtl = dnsNegativeCacheTtl;
+    }
+
+    public int getDnsMaxStaleTime() {
+        return dnsMaxStaleTime;
+    }
+
+    public void setDnsMaxStaleTime(final int dnsMaxStaleTime) {
+        this.dnsMaxStaleTime = dnsMaxStaleTime;
+    }
+
+    public boolean isSequenceNumbers() {
+        return sequenceNumbers;
+    }
+
+    public void setSequenceNumbers(final boolean sequenceNumbers) {
+        this.sequenceNumbers = sequenceNumbers;
+    }
+
+    public String getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(final String senderId) {
+        this.senderId = senderId;
+    }
+
     public Encoder<ILoggingEvent> getEncoder() {
         return encoder;
     }
@@ -83,6 +158,8 @@ public abstract class AbstractGelfAppender extends UnsynchronizedAppenderBase<IL
         }
 
         try {
+            sequenceStamper = SequenceStamper.create(sequenceNumbers, senderId);
+
             startAppender();
 
             super.start();
@@ -93,19 +170,40 @@ public abstract class AbstractGelfAppender extends UnsynchronizedAppenderBase<IL
 
     protected abstract void startAppender() throws IOException;
 
+    AddressResolver newAddressResolver() {
+        return newAddressResolver(graylogHost);
+    }
+
+    AddressResolver newAddressResolver(final String hostname) {
+        return new AddressResolver(hostname, dnsCacheTtl, dnsNegativeCacheTtl, dnsMaxStaleTime);
+    }
+
     @SuppressWarnings("checkstyle:illegalcatch")
     @Override
     protected void append(final ILoggingEvent event) {
-        final byte[] binMessage = encoder.encode(event);
+        final byte[] encoded = encoder.encode(event);
+        final byte[] binMessage = sequenceStamper.stamp(encoded);
 
         try {
-            appendMessage(binMessage);
+            appendMessage(binMessage, event);
         } catch (final Exception e) {
             // Could be IOException or some kind of RuntimeException
             addError("Error sending GELF message", e);
         }
     }
 
+    /**
+     * Sends the encoded message. Override this method if the event (e.g. its level) is relevant
+     * for sending.
+     *
+     * @param messageToSend the encoded message.
+     * @param event the logging event the message has been encoded from.
+     * @throws IOException if an I/O error occurs.
+     */
+    protected void appendMessage(final byte[] messageToSend, final ILoggingEvent event) throws IOException {
+        appendMessage(messageToSend);
+    }
+
     protected abstract void appendMessage(byte[] messageToSend) throws IOException;
 
     @Override
@@ -0,0 +1,41 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+
+/**
+ * Base class of all appenders of this library. Provides the metrics of the appender.
+ */
+public abstract class AbstractMeteredAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+
+    private final AppenderMetrics metrics = new AppenderMetrics();
+
+    /**
+     * Metrics (counters and gauges) of this appender.
+     *
+     * @return the metrics of this appender.
+     */
+    public AppenderMetrics getMetrics() {
+        return metrics;
+    }
+
+}
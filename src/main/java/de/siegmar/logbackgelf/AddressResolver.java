@@ -19,29 +19,260 @@
 
 package de.siegmar.logbackgelf;
 
+import java.io.Closeable;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
-class AddressResolver {
+/**
+ * Resolves the Graylog hostname and selects one of the addresses using round-robin.
+ * <p>
+ * If a cache TTL is configured, the resolved addresses are cached and refreshed asynchronously
+ * before they expire - so logging threads don't block on DNS lookups. If a refresh fails, the
+ * last-known-good addresses are used - but not longer than the max stale time after they expired.
+ * Failed lookups (without any known addresses) are cached for the (usually shorter) negative
+ * cache TTL.
+ * <p>
+ * Only one lookup is performed at a time. Concurrent callers that have to wait for a lookup wait
+ * for the result of the one in progress.
+ */
+class AddressResolver implements Closeable {
+
+    /**
+     * Percentage of the TTL after that an asynchronous refresh is triggered.
+     */
+    private static final int REFRESH_AHEAD_PERCENT = 80;
+
+    private static final int PERCENT = 100;
 
     private final String hostname;
     private final AtomicInteger cnt;
+    private final long ttlNanos;
+    private final long negativeTtlNanos;
+    private final long maxStaleNanos;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final AtomicReference<FutureTask<Resolution>> pendingRefresh = new AtomicReference<>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private final ExecutorService refreshExecutor;
+
+    private volatile Resolution resolution;
 
     AddressResolver(final String hostname) {
         this(hostname, new AtomicInteger());
     }
 
     AddressResolver(final String hostname, final AtomicInteger cnt) {
+        this(hostname, cnt, 0, 0, 0);
+    }
+
+    /**
+     * Creates a caching address resolver.
+     *
+     * @param hostname the hostname to resolve.
+     * @param ttl the time (in milliseconds) to cache resolved addresses. 0 disables caching.
+     * @param negativeTtl the time (in milliseconds) to cache failed lookups.
+     * @param maxStale the time (in milliseconds) to use the last-known-good addresses after they
+     *     expired, if refreshing them fails.
+     */
+    AddressResolver(final String hostname, final long ttl, final long negativeTtl, final long maxStale) {
+        this(hostname, new AtomicInteger(), ttl, negativeTtl, maxStale);
+    }
+
+    AddressResolver(final String hostname, final AtomicInteger cnt, final long ttl, final long negativeTtl,
+                    final long maxStale) {
         this.hostname = hostname;
         this.cnt = cnt;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtl);
+        this.maxStaleNanos = TimeUnit.MILLISECONDS.toNanos(maxStale);
+        this.refreshExecutor = ttl > 0
+            ? Executors.newSingleThreadExecutor(new DaemonThreadFactory("dns-refresh"))
+            : null;
+    }
+
+    public String getHostname() {
+        return hostname;
     }
 
     public InetAddress resolve() throws UnknownHostException {
-        final InetAddress[] ips = lookup();
+        final InetAddress[] ips = resolveAll();
         return ips[modulo(cnt.getAndIncrement(), ips.length)];
     }
 
+    /**
+     * Resolves all addresses of the hostname.
+     *
+     * @return all addresses of the hostname. As long as the addresses don't change, the very same
+     *     array instance is returned.
+     * @throws UnknownHostException if the hostname could not be resolved.
+     */
+    public InetAddress[] resolveAll() throws UnknownHostException {
+        if (refreshExecutor == null) {
+            return lookup();
+        }
+
+        final Resolution current = resolution;
+        if (mustBlock(current)) {
+            return refreshBlocking().get();
+        }
+
+        if (System.nanoTime() - current.refreshAt >= 0) {
+            refreshAsync();
+        }
+
+        return current.get();
+    }
+
+    /**
+     * Checks if callers have to wait for a lookup - because nothing is known yet or the negative
+     * cache expired.
+     */
+    private static boolean mustBlock(final Resolution current) {
+        return current == null || current.addresses == null && System.nanoTime() - current.refreshAt >= 0;
+    }
+
+    /**
+     * Performs a lookup unless a concurrent caller already did - so threads that log before the
+     * first resolution completed don't perform a lookup (and change the generation) each.
+     */
+    private Resolution refreshBlocking() throws UnknownHostException {
+        return refreshOnce(() -> {
+            final Resolution current = resolution;
+            return mustBlock(current) ? refresh() : current;
+        });
+    }
+
+    /**
+     * Runs the given refresh unless another one is in progress - in that case, the result of the
+     * one in progress is awaited instead. No monitor is held during the lookup.
+     */
+    private Resolution refreshOnce(final Callable<Resolution> refresh) throws UnknownHostException {
+        final FutureTask<Resolution> task = new FutureTask<>(refresh);
+        final FutureTask<Resolution> inProgress = pendingRefresh.compareAndExchange(null, task);
+        if (inProgress != null) {
+            return await(inProgress);
+        }
+
+        try {
+            task.run();
+        } finally {
+            pendingRefresh.set(null);
+        }
+
+        return await(task);
+    }
+
+    private static Resolution await(final FutureTask<Resolution> task) throws UnknownHostException {
+        try {
+            return task.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnknownHostException("Interrupted while waiting for the address resolution");
+        } catch (final ExecutionException e) {
+            throw new IllegalStateException("Address resolution failed", e.getCause());
+        }
+    }
+
+    /**
+     * Returns a number that changes whenever the (cached) set of resolved addresses changes.
+     *
+     * @return the current generation of the address resolution.
+     */
+    public int getGeneration() {
+        return generation.get();
+    }
+
+    private void refreshAsync() {
+        if (refreshing.compareAndSet(false, true)) {
+            try {
+                refreshExecutor.execute(() -> {
+                    try {
+                        refreshOnce(this::refresh);
+                    } catch (final UnknownHostException e) {
+                        // interrupted - resolver has been closed
+                    } finally {
+                        refreshing.set(false);
+                    }
+                });
+            } catch (final RejectedExecutionException e) {
+                // resolver has been closed
+                refreshing.set(false);
+            }
+        }
+    }
+
+    /**
+     * Performs the lookup and updates the resolution. Must only be called via
+     * {@link #refreshOnce(Callable)}.
+     */
+    private Resolution refresh() {
+        final Resolution previous = resolution;
+        final long now = System.nanoTime();
+
+        Resolution next;
+        try {
+            final InetAddress[] addresses = lookup();
+            final long staleAt = now + ttlNanos + maxStaleNanos;
+            if (previous != null && sameAddresses(previous.addresses, addresses)) {
+                // Keep the array instance to allow cheap comparisons by callers
+                next = new Resolution(previous.addresses, null, now + refreshAfter(), staleAt);
+            } else {
+                next = new Resolution(addresses, null, now + refreshAfter(), staleAt);
+                generation.incrementAndGet();
+            }
+        } catch (final UnknownHostException e) {
+            next = previous != null && previous.addresses != null && now - previous.staleAt < 0
+                // Keep serving last-known-good addresses - until they are stale
+                ? new Resolution(previous.addresses, null,
+                    Math.min(negativeTtlNanos, previous.staleAt - now) + now, previous.staleAt)
+                : new Resolution(null, e, now + negativeTtlNanos, now);
+        }
+
+        resolution = next;
+        return next;
+    }
+
+    private long refreshAfter() {
+        return ttlNanos / PERCENT * REFRESH_AHEAD_PERCENT;
+    }
+
+    /**
+     * Checks if both arrays contain the same addresses (including duplicates) - regardless of
+     * their order (DNS servers may rotate the order of multiple records).
+     *
+     * @param a the first addresses.
+     * @param b the second addresses.
+     * @return {@code true} if both arrays contain the same addresses.
+     */
+    static boolean sameAddresses(final InetAddress[] a, final InetAddress[] b) {
+        if (a == b || a == null || b == null || a.length != b.length) {
+            return a == b;
+        }
+
+        final Map<InetAddress, Integer> counts = new HashMap<>();
+        for (final InetAddress address : a) {
+            counts.merge(address, 1, Integer::sum);
+        }
+        for (final InetAddress address : b) {
+            if (counts.merge(address, -1, Integer::sum) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     InetAddress[] lookup() throws UnknownHostException {
         return InetAddress.getAllByName(hostname);
     }
@@ -50,4 +281,35 @@ class AddressResolver {
         return ((value % modulo) + modulo) % modulo;
     }
 
+    @Override
+    public void close() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    private static final class Resolution {
+
+        private final InetAddress[] addresses;
+        private final UnknownHostException error;
+        private final long refreshAt;
+        private final long staleAt;
+
+        Resolution(final InetAddress[] addresses, final UnknownHostException error, final long refreshAt,
+                   final long staleAt) {
+            this.addresses = addresses;
+            this.error = error;
+            this.refreshAt = refreshAt;
+            this.staleAt = staleAt;
+        }
+
+        InetAddress[] get() throws UnknownHostException {
+            if (addresses == null) {
+                throw error;
+            }
+            return addresses;
+        }
+
+    }
+
 }
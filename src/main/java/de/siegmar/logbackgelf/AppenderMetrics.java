@@ -0,0 +1,101 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Simple registry for counters and gauges of an appender. Counters are cheap to update from
+ * multiple threads concurrently. The values can be read by monitoring code (e.g. via JMX or a
+ * health check) using {@link #get(String)} or {@link #snapshot()}.
+ */
+public class AppenderMetrics {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    /**
+     * Increments the counter with the given name by one.
+     *
+     * @param name the name of the counter.
+     */
+    public void increment(final String name) {
+        counter(name).increment();
+    }
+
+    /**
+     * Adds the given value to the counter with the given name.
+     *
+     * @param name the name of the counter.
+     * @param delta the value to add.
+     */
+    public void add(final String name, final long delta) {
+        counter(name).add(delta);
+    }
+
+    private LongAdder counter(final String name) {
+        final LongAdder counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    /**
+     * Registers a gauge - a value that is calculated on demand (e.g. a queue depth).
+     *
+     * @param name the name of the gauge.
+     * @param gauge the supplier of the current value.
+     */
+    public void registerGauge(final String name, final LongSupplier gauge) {
+        gauges.put(name, gauge);
+    }
+
+    /**
+     * Returns the current value of the counter or gauge with the given name.
+     *
+     * @param name the name of the counter or gauge.
+     * @return the current value or 0 if no such counter or gauge exists.
+     */
+    public long get(final String name) {
+        final LongSupplier gauge = gauges.get(name);
+        if (gauge != null) {
+            return gauge.getAsLong();
+        }
+
+        final LongAdder counter = counters.get(name);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    /**
+     * Returns the current values of all counters and gauges.
+     *
+     * @return a sorted map of all counters and gauges.
+     */
+    public SortedMap<String, Long> snapshot() {
+        final SortedMap<String, Long> snapshot = new TreeMap<>();
+        counters.forEach((name, counter) -> snapshot.put(name, counter.sum()));
+        gauges.forEach((name, gauge) -> snapshot.put(name, gauge.getAsLong()));
+        return snapshot;
+    }
+
+}
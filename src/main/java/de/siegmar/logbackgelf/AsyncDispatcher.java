@@ -0,0 +1,235 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands over messages from logging threads to background worker threads.
+ * <p>
+ * Every worker owns a pre-allocated {@link RingBuffer}. Logging threads are assigned to a worker
+ * by their thread id, so the messages of one logging thread are always handled by the same worker
+ * in the order they were dispatched. Workers drain their queue in batches.
+ */
+final class AsyncDispatcher {
+
+    /**
+     * Suffix of the gauge reporting the number of queued messages.
+     */
+    static final String METRIC_QUEUE_DEPTH = ".queue_depth";
+
+    /**
+     * Suffix of the counter of messages dropped because of a full queue.
+     */
+    static final String METRIC_DROPPED = ".dropped";
+
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Worker[] workers;
+    private final OverflowPolicy overflowPolicy;
+    private final AppenderMetrics metrics;
+    private final String droppedMetric;
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new dispatcher.
+     *
+     * @param name the name used for the worker threads.
+     * @param workerCount the number of worker threads.
+     * @param queueSize the total number of messages that can be queued.
+     * @param overflowPolicy the policy to apply if a queue is full.
+     * @param metrics the metrics to report the queue depth and dropped messages to.
+     * @param metricPrefix the prefix of the metric names.
+     * @param handler the handler of the messages, called by the worker threads.
+     */
+    AsyncDispatcher(final String name, final int workerCount, final int queueSize,
+                    final OverflowPolicy overflowPolicy, final AppenderMetrics metrics,
+                    final String metricPrefix, final Handler handler) {
+
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be > 0");
+        }
+
+        if (queueSize < workerCount) {
+            throw new IllegalArgumentException("queueSize must be >= workerCount");
+        }
+
+        this.overflowPolicy = overflowPolicy;
+        this.metrics = metrics;
+        this.droppedMetric = metricPrefix + METRIC_DROPPED;
+
+        final DaemonThreadFactory threadFactory = new DaemonThreadFactory(name);
+        final int queueSizePerWorker = (queueSize + workerCount - 1) / workerCount;
+        workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Worker(new RingBuffer<>(queueSizePerWorker), handler, threadFactory);
+        }
+
+        metrics.registerGauge(metricPrefix + METRIC_QUEUE_DEPTH, this::queueDepth);
+    }
+
+    void start() {
+        for (final Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    private long queueDepth() {
+        long depth = 0;
+        for (final Worker worker : workers) {
+            depth += worker.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Queues the message for the worker assigned to the current thread.
+     *
+     * @param message the message to queue.
+     * @return {@code true} if the message has been queued, {@code false} if it has been dropped.
+     */
+    boolean dispatch(final byte[] message) {
+        final Worker worker = workers.length == 1 ? workers[0]
+            : workers[(int) (Thread.currentThread().getId() % workers.length)];
+
+        final boolean queued = running
+            && overflowPolicy.offer(worker.queue, message, this::isRunning, worker::wakeUp, this::dropped);
+
+        if (queued) {
+            worker.wakeUp();
+        } else {
+            dropped();
+        }
+
+        return queued;
+    }
+
+    private boolean isRunning() {
+        return running;
+    }
+
+    private void dropped() {
+        metrics.increment(droppedMetric);
+    }
+
+    /**
+     * Stops accepting new messages and waits for the workers to handle all queued messages.
+     *
+     * @param timeout maximum time (in milliseconds) to wait.
+     * @throws InterruptedException if the current thread has been interrupted while waiting.
+     */
+    void close(final long timeout) throws InterruptedException {
+        running = false;
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        for (final Worker worker : workers) {
+            LockSupport.unpark(worker.thread);
+            worker.thread.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+
+        for (final Worker worker : workers) {
+            if (worker.thread.isAlive()) {
+                worker.thread.interrupt();
+            }
+
+            // Messages that couldn't be handled in time
+            while (worker.queue.poll() != null) {
+                dropped();
+            }
+        }
+    }
+
+    /**
+     * Handler for messages drained by a worker.
+     */
+    @FunctionalInterface
+    interface Handler {
+
+        /**
+         * Handles a batch of messages. Implementations must not throw exceptions.
+         *
+         * @param messages the messages to handle (in the order they were queued).
+         */
+        void handle(List<byte[]> messages);
+
+    }
+
+    private final class Worker implements Runnable {
+
+        private final RingBuffer<byte[]> queue;
+        private final Handler handler;
+        private final Thread thread;
+        private volatile boolean idle;
+
+        Worker(final RingBuffer<byte[]> queue, final Handler handler, final DaemonThreadFactory threadFactory) {
+            this.queue = queue;
+            this.handler = handler;
+            this.thread = threadFactory.newThread(this);
+        }
+
+        void wakeUp() {
+            if (idle) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @SuppressWarnings("checkstyle:IllegalCatch")
+        @Override
+        public void run() {
+            final List<byte[]> batch = new ArrayList<>(MAX_BATCH_SIZE);
+            while (!Thread.currentThread().isInterrupted()) {
+                byte[] message;
+                while (batch.size() < MAX_BATCH_SIZE && (message = queue.poll()) != null) {
+                    batch.add(message);
+                }
+
+                if (!batch.isEmpty()) {
+                    try {
+                        handler.handle(batch);
+                    } catch (final RuntimeException e) {
+                        // Handler should never throw - just make sure the worker survives
+                        metrics.add(droppedMetric, batch.size());
+                    }
+                    batch.clear();
+                } else if (running) {
+                    awaitMessages();
+                } else {
+                    // Stopped and drained
+                    break;
+                }
+            }
+        }
+
+        private void awaitMessages() {
+            idle = true;
+            if (queue.isEmpty() && running) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            idle = false;
+        }
+
+    }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+
+import javax.net.SocketFactory;
+
+import ch.qos.logback.core.util.CloseUtil;
+
+/**
+ * Socket factory that creates sockets backed by a (blocking) {@link SocketChannel}. This allows
+ * {@link TcpConnection} to send messages and their terminators with a single gathering write.
+ */
+final class ChannelSocketFactory extends SocketFactory {
+
+    static final ChannelSocketFactory INSTANCE = new ChannelSocketFactory();
+
+    private ChannelSocketFactory() {
+    }
+
+    @Override
+    public Socket createSocket() throws IOException {
+        return SocketChannel.open().socket();
+    }
+
+    @Override
+    public Socket createSocket(final String host, final int port) throws IOException {
+        return connect(null, new InetSocketAddress(host, port));
+    }
+
+    @Override
+    public Socket createSocket(final String host, final int port, final InetAddress localHost,
+                               final int localPort) throws IOException {
+        return connect(new InetSocketAddress(localHost, localPort), new InetSocketAddress(host, port));
+    }
+
+    @Override
+    public Socket createSocket(final InetAddress host, final int port) throws IOException {
+        return connect(null, new InetSocketAddress(host, port));
+    }
+
+    @Override
+    public Socket createSocket(final InetAddress address, final int port, final InetAddress localAddress,
+                               final int localPort) throws IOException {
+        return connect(new InetSocketAddress(localAddress, localPort), new InetSocketAddress(address, port));
+    }
+
+    private Socket connect(final SocketAddress localAddress, final SocketAddress remoteAddress)
+        throws IOException {
+
+        final Socket socket = createSocket();
+        try {
+            if (localAddress != null) {
+                socket.bind(localAddress);
+            }
+            socket.connect(remoteAddress);
+        } catch (final IOException e) {
+            CloseUtil.closeQuietly(socket);
+            throw e;
+        }
+        return socket;
+    }
+
+}
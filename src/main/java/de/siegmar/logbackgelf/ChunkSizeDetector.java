@@ -0,0 +1,101 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * Derives the largest chunk size that doesn't cause IP fragmentation from the MTU of the network
+ * interface that is used to reach the Graylog server.
+ */
+final class ChunkSizeDetector {
+
+    private static final int IPV4_HEADER_LENGTH = 20;
+    private static final int IPV6_HEADER_LENGTH = 40;
+    private static final int UDP_HEADER_LENGTH = 8;
+
+    private ChunkSizeDetector() {
+    }
+
+    /**
+     * Detects the chunk size for the (first) resolved address of the Graylog server.
+     *
+     * @param addressResolver the resolver of the Graylog server addresses.
+     * @param port the port of the Graylog server.
+     * @return the chunk size in bytes.
+     * @throws IOException if the address, network interface or its MTU couldn't be determined.
+     */
+    static int detect(final AddressResolver addressResolver, final int port) throws IOException {
+        return detect(addressResolver.resolveAll()[0], port);
+    }
+
+    /**
+     * Detects the chunk size for the given destination. The route (and thereby the network
+     * interface) is determined by connecting a datagram channel - no packet is sent.
+     *
+     * @param address the address of the Graylog server.
+     * @param port the port of the Graylog server.
+     * @return the chunk size in bytes.
+     * @throws IOException if the network interface or its MTU couldn't be determined.
+     */
+    static int detect(final InetAddress address, final int port) throws IOException {
+        final InetAddress localAddress;
+        try (DatagramChannel channel = DatagramChannel.open()) {
+            channel.connect(new InetSocketAddress(address, port));
+            localAddress = ((InetSocketAddress) channel.getLocalAddress()).getAddress();
+        }
+
+        final NetworkInterface networkInterface = NetworkInterface.getByInetAddress(localAddress);
+        if (networkInterface == null) {
+            throw new IOException("No network interface found for local address " + localAddress);
+        }
+
+        if (networkInterface.isLoopback()) {
+            // Loopback MTU is usually 64 KiB or larger - no fragmentation on the wire
+            return GelfUdpChunker.MAX_CHUNK_SIZE;
+        }
+
+        final int mtu = networkInterface.getMTU();
+        if (mtu <= 0) {
+            throw new IOException("Unknown MTU of network interface " + networkInterface.getName());
+        }
+
+        return chunkSize(mtu, address);
+    }
+
+    /**
+     * Calculates the chunk size for the given MTU.
+     *
+     * @param mtu the MTU of the network interface.
+     * @param address the destination address (used to determine the IP header size).
+     * @return the chunk size in bytes (limited to the supported chunk size range).
+     */
+    static int chunkSize(final int mtu, final InetAddress address) {
+        final int ipHeaderLength = address instanceof Inet6Address ? IPV6_HEADER_LENGTH : IPV4_HEADER_LENGTH;
+        final int chunkSize = mtu - ipHeaderLength - UDP_HEADER_LENGTH;
+        return Math.max(GelfUdpChunker.MIN_CHUNK_SIZE, Math.min(chunkSize, GelfUdpChunker.MAX_CHUNK_SIZE));
+    }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import ch.qos.logback.core.spi.ContextAware;
+
+/**
+ * Circuit breaker that stops sending to an unavailable server.
+ * <p>
+ * After the configured number of consecutive failures the circuit opens - requests are rejected
+ * immediately instead of waiting for timeouts. After the cool-down time a single probe request is
+ * let through (half-open). If the probe succeeds, the circuit closes again - otherwise it re-opens
+ * for another cool-down time. If the result of the probe isn't reported within the cool-down
+ * time, the probe is considered lost and the circuit re-opens as well.
+ * <p>
+ * State transitions are reported as status messages and metrics.
+ */
+final class CircuitBreaker {
+
+    /**
+     * Suffix of the gauge reporting the current state (0 = closed, 1 = open, 2 = half-open).
+     */
+    static final String METRIC_STATE = ".circuit_state";
+
+    /**
+     * Suffix of the counter of circuit openings.
+     */
+    static final String METRIC_OPENED = ".circuit_opened";
+
+    private final int failureThreshold;
+    private final long coolDown;
+    private final long coolDownNanos;
+    private final LongSupplier nanoClock;
+    private final ContextAware status;
+    private final String target;
+    private final AppenderMetrics metrics;
+    private final String openedMetric;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private long openedAt;
+    private long probeStartedAt;
+
+    /**
+     * Creates a new circuit breaker.
+     *
+     * @param failureThreshold the number of consecutive failures that open the circuit or 0 to
+     *                         disable the circuit breaker.
+     * @param coolDown the time (in milliseconds) the circuit stays open before a probe is sent.
+     * @param status the component to report state transitions to.
+     * @param target the description of the server (used for status messages).
+     * @param metrics the metrics to report the state to.
+     * @param metricPrefix the prefix of the metric names.
+     */
+    CircuitBreaker(final int failureThreshold, final long coolDown, final ContextAware status,
+                   final String target, final AppenderMetrics metrics, final String metricPrefix) {
+        this(failureThreshold, coolDown, status, target, metrics, metricPrefix, System::nanoTime);
+    }
+
+    CircuitBreaker(final int failureThreshold, final long coolDown, final ContextAware status,
+                   final String target, final AppenderMetrics metrics, final String metricPrefix,
+                   final LongSupplier nanoClock) {
+
+        if (failureThreshold < 0) {
+            throw new IllegalArgumentException("failureThreshold must be >= 0");
+        }
+
+        this.failureThreshold = failureThreshold;
+        this.coolDown = coolDown;
+        this.coolDownNanos = TimeUnit.MILLISECONDS.toNanos(coolDown);
+        this.status = status;
+        this.target = target;
+        this.metrics = metrics;
+        this.openedMetric = metricPrefix + METRIC_OPENED;
+        this.nanoClock = nanoClock;
+
+        metrics.registerGauge(metricPrefix + METRIC_STATE, () -> state.get().ordinal());
+    }
+
+    /**
+     * Checks if a request may be sent. If the cool-down time of an open circuit has elapsed, the
+     * first caller is allowed to send a probe request.
+     *
+     * @return {@code true} if the request may be sent.
+     */
+    boolean allowRequest() {
+        return state.get() == State.CLOSED || tryHalfOpen();
+    }
+
+    /**
+     * Lets a probe request through if the cool-down time has elapsed. Synchronized with
+     * {@link #open(State)}, so the open time is never read before it has been set.
+     */
+    private synchronized boolean tryHalfOpen() {
+        final long now = nanoClock.getAsLong();
+        if (state.get() == State.HALF_OPEN && now - probeStartedAt >= coolDownNanos) {
+            // The result of the probe hasn't been reported - don't stay half-open forever
+            transition(State.HALF_OPEN, State.OPEN);
+            return false;
+        }
+
+        return state.get() == State.OPEN && now - openedAt >= coolDownNanos
+            && transition(State.OPEN, State.HALF_OPEN);
+    }
+
+    /**
+     * Checks if the circuit is closed (normal operation).
+     *
+     * @return {@code true} if the circuit is closed.
+     */
+    boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    State getState() {
+        return state.get();
+    }
+
+    /**
+     * Executes the given action and records its result.
+     *
+     * @param action the action to execute.
+     * @param <T> the type of the result.
+     * @return the result of the action.
+     * @throws Exception if the action failed.
+     */
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    <T> T call(final Callable<T> action) throws Exception {
+        final T result;
+        try {
+            result = action.call();
+        } catch (final Exception e) {
+            onFailure();
+            throw e;
+        }
+
+        onSuccess();
+        return result;
+    }
+
+    void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state.get() != State.CLOSED) {
+            transition(State.HALF_OPEN, State.CLOSED);
+        }
+    }
+
+    void onFailure() {
+        if (failureThreshold == 0) {
+            return;
+        }
+
+        if (state.get() == State.HALF_OPEN) {
+            open(State.HALF_OPEN);
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            open(State.CLOSED);
+        }
+    }
+
+    private synchronized void open(final State expected) {
+        transition(expected, State.OPEN);
+    }
+
+    private boolean transition(final State expected, final State newState) {
+        if (!state.compareAndSet(expected, newState)) {
+            return false;
+        }
+
+        // Set only if this thread opened the circuit - late failures of requests that were sent
+        // before don't extend the cool-down time
+        if (newState == State.OPEN) {
+            openedAt = nanoClock.getAsLong();
+        } else if (newState == State.HALF_OPEN) {
+            probeStartedAt = nanoClock.getAsLong();
+        } else if (newState == State.CLOSED) {
+            consecutiveFailures.set(0);
+        }
+
+        report(newState);
+        return true;
+    }
+
+    private void report(final State newState) {
+        switch (newState) {
+            case OPEN:
+                metrics.increment(openedMetric);
+                status.addWarn(String.format("Circuit breaker for %s opened - rejecting messages for %d ms",
+                    target, coolDown));
+                break;
+            case HALF_OPEN:
+                status.addInfo(String.format("Circuit breaker for %s half-open - sending probe message", target));
+                break;
+            default:
+                status.addInfo(String.format("Circuit breaker for %s closed - sending messages again", target));
+        }
+    }
+
+    /**
+     * The states of a circuit breaker.
+     */
+    enum State {
+
+        /**
+         * Normal operation - all requests are sent.
+         */
+        CLOSED,
+
+        /**
+         * The server is considered unavailable - all requests are rejected.
+         */
+        OPEN,
+
+        /**
+         * A single probe request has been sent to check if the server is available again.
+         */
+        HALF_OPEN
+
+    }
+
+}
@@ -0,0 +1,70 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Supplier implementation for GELF message IDs that is cheaper than {@link MessageIdSupplier} and
+ * free of collisions within the process.
+ * <p>
+ * An ID consists of a random per-JVM prefix (upper {@value PREFIX_BITS} bits) and a counter
+ * (lower {@value COUNTER_BITS} bits). To avoid contention on the shared counter, every thread
+ * reserves a block of {@value BLOCK_SIZE} IDs at once and hands them out without any
+ * synchronization. The counter wraps after 2^{@value COUNTER_BITS} IDs - far beyond the number
+ * of messages that can be sent within the reassembly window of Graylog (5 seconds). The random
+ * prefix spreads the IDs of different hosts.
+ */
+public class CounterMessageIdSupplier implements LongSupplier {
+
+    private static final int PREFIX_BITS = 24;
+    private static final int COUNTER_BITS = Long.SIZE - PREFIX_BITS;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final int BLOCK_SIZE = 1024;
+
+    /**
+     * Per thread: next counter value and end of the reserved block.
+     */
+    private static final ThreadLocal<long[]> BLOCK = ThreadLocal.withInitial(() -> new long[2]);
+
+    private static final long PREFIX;
+    private static final AtomicLong NEXT_BLOCK;
+
+    static {
+        final SecureRandom random = new SecureRandom();
+        PREFIX = random.nextLong() & ~COUNTER_MASK;
+        NEXT_BLOCK = new AtomicLong(random.nextLong() & COUNTER_MASK);
+    }
+
+    @Override
+    public long getAsLong() {
+        final long[] block = BLOCK.get();
+        if (block[0] == block[1]) {
+            block[0] = NEXT_BLOCK.getAndAdd(BLOCK_SIZE);
+            block[1] = block[0] + BLOCK_SIZE;
+        }
+
+        final long counter = block[0]++;
+        return PREFIX | (counter & COUNTER_MASK);
+    }
+
+}
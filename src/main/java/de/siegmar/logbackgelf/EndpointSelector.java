@@ -0,0 +1,404 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import ch.qos.logback.core.spi.ContextAware;
+
+/**
+ * Spreads connections across multiple Graylog servers - all resolved addresses of all configured
+ * hosts.
+ * <p>
+ * Every address is tracked as an {@link Endpoint} with its number of connections, the number of
+ * bytes written to it but not yet flushed (outstanding bytes) and an exponentially weighted moving
+ * average of its write latency. New connections go to the endpoint with the fewest connections -
+ * ties are broken by the lowest load ({@code (outstandingBytes + 1) * (latency + 1)}) and finally
+ * by round-robin.
+ * <p>
+ * Endpoints that fail repeatedly are ejected for a while. If all endpoints are ejected, they are
+ * used anyway - dropping all messages wouldn't help anybody.
+ * <p>
+ * Endpoints whose address is gone are marked as removed and forgotten - on every
+ * {@link #select()} (so endpoints don't pile up if the addresses rotate and the DNS cache is
+ * disabled) and by {@link #refresh()} if the (cached) resolution of a host changes. Together with
+ * {@link #shouldMove(Endpoint)} this allows connections to be drained from removed endpoints and
+ * to be redistributed to new ones.
+ */
+final class EndpointSelector implements Closeable {
+
+    /**
+     * Weight of a new latency sample for the moving average: 1 / 2^{@value}.
+     */
+    private static final int LATENCY_EWMA_SHIFT = 3;
+
+    private final List<AddressResolver> resolvers;
+    private final int port;
+    private final int ejectionThreshold;
+    private final long ejectionTime;
+    private final long ejectionNanos;
+    private final ContextAware status;
+    private final AppenderMetrics metrics;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger cnt = new AtomicInteger();
+    /**
+     * Endpoints by hostname and address - hosts that resolve to the same address get an endpoint
+     * each, as TLS connections verify the certificate against the hostname of their endpoint.
+     */
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private volatile List<Endpoint> current = List.of();
+    private volatile int generation = -1;
+
+    /**
+     * Creates a new endpoint selector.
+     *
+     * @param resolvers the resolvers of the configured Graylog hosts.
+     * @param port the port of the Graylog servers.
+     * @param ejectionThreshold the number of consecutive failures that eject an endpoint or 0 to
+     *                          disable ejection.
+     * @param ejectionTime the time (in milliseconds) an endpoint is ejected.
+     * @param status the component to report ejections to.
+     * @param metrics the metrics to report ejections to.
+     */
+    EndpointSelector(final List<AddressResolver> resolvers, final int port, final int ejectionThreshold,
+                     final long ejectionTime, final ContextAware status, final AppenderMetrics metrics) {
+        this(resolvers, port, ejectionThreshold, ejectionTime, status, metrics, System::nanoTime);
+    }
+
+    EndpointSelector(final List<AddressResolver> resolvers, final int port, final int ejectionThreshold,
+                     final long ejectionTime, final ContextAware status, final AppenderMetrics metrics,
+                     final LongSupplier nanoClock) {
+
+        if (resolvers.isEmpty()) {
+            throw new IllegalArgumentException("No Graylog host configured");
+        }
+        if (ejectionThreshold < 0) {
+            throw new IllegalArgumentException("ejectionThreshold must be >= 0");
+        }
+
+        this.resolvers = List.copyOf(resolvers);
+        this.port = port;
+        this.ejectionThreshold = ejectionThreshold;
+        this.ejectionTime = ejectionTime;
+        this.ejectionNanos = TimeUnit.MILLISECONDS.toNanos(ejectionTime);
+        this.status = status;
+        this.metrics = metrics;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Checks if multiple hosts are configured.
+     *
+     * @return {@code true} if more than one host is configured.
+     */
+    boolean isMultiHost() {
+        return resolvers.size() > 1;
+    }
+
+    /**
+     * Selects the endpoint for a new connection.
+     *
+     * @return the selected endpoint.
+     * @throws UnknownHostException if none of the hosts could be resolved.
+     */
+    Endpoint select() throws UnknownHostException {
+        final List<Endpoint> candidates = resolve();
+        prune(candidates);
+
+        final long now = nanoClock.getAsLong();
+
+        // Start at a different candidate each time to spread connections across equal endpoints
+        final int offset = cnt.getAndIncrement();
+        Endpoint best = null;
+        for (int i = 0; i < candidates.size(); i++) {
+            final Endpoint candidate = candidates.get(Math.floorMod(offset + i, candidates.size()));
+            if (best == null || candidate.isPreferredOver(best, now)) {
+                best = candidate;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Resolves all hosts (from the cache, if enabled) and marks the endpoints of addresses that are
+     * gone as removed. New connections only go to endpoints of the current resolution anyway.
+     *
+     * @throws UnknownHostException if none of the hosts could be resolved.
+     */
+    void refresh() throws UnknownHostException {
+        // Read the generations first - a concurrent change is then detected on the next refresh
+        int newGeneration = 0;
+        for (final AddressResolver resolver : resolvers) {
+            newGeneration += resolver.getGeneration();
+        }
+
+        final List<Endpoint> candidates = resolve();
+        current = candidates;
+
+        if (newGeneration != generation) {
+            generation = newGeneration;
+            prune(candidates);
+        }
+    }
+
+    /**
+     * Marks all endpoints that are not part of the given resolution as removed and forgets them.
+     */
+    private void prune(final List<Endpoint> candidates) {
+        endpoints.values().removeIf(endpoint -> {
+            if (candidates.contains(endpoint)) {
+                return false;
+            }
+            endpoint.removed = true;
+            return true;
+        });
+    }
+
+    /**
+     * Checks if a connection to the given endpoint should be moved to another endpoint - either
+     * because the endpoint has been removed or because it has more than one connection more than the
+     * least used available endpoint.
+     *
+     * @param endpoint the endpoint of the connection.
+     * @return {@code true} if the connection should be moved.
+     */
+    boolean shouldMove(final Endpoint endpoint) {
+        if (endpoint.removed) {
+            return true;
+        }
+
+        final long now = nanoClock.getAsLong();
+        int minConnections = Integer.MAX_VALUE;
+        for (final Endpoint candidate : current) {
+            if (!candidate.isEjected(now)) {
+                minConnections = Math.min(minConnections, candidate.connections.get());
+            }
+        }
+
+        return minConnections != Integer.MAX_VALUE && endpoint.connections.get() > minConnections + 1;
+    }
+
+    private List<Endpoint> resolve() throws UnknownHostException {
+        final List<Endpoint> candidates = new ArrayList<>();
+        UnknownHostException error = null;
+
+        for (final AddressResolver resolver : resolvers) {
+            try {
+                final String hostname = resolver.getHostname();
+                for (final InetAddress address : resolver.resolveAll()) {
+                    candidates.add(endpoints.computeIfAbsent(hostname + '/' + address.getHostAddress(),
+                        k -> new Endpoint(hostname, new InetSocketAddress(address, port))));
+                }
+            } catch (final UnknownHostException e) {
+                // Use the remaining hosts
+                error = e;
+            }
+        }
+
+        if (candidates.isEmpty()) {
+            throw error;
+        }
+
+        return candidates;
+    }
+
+    @Override
+    public void close() {
+        for (final AddressResolver resolver : resolvers) {
+            resolver.close();
+        }
+    }
+
+    /**
+     * A single Graylog server address and its recent load and health.
+     */
+    final class Endpoint {
+
+        private final String host;
+        private final InetSocketAddress address;
+        private final AtomicInteger connections = new AtomicInteger();
+        private final AtomicLong outstandingBytes = new AtomicLong();
+        private final AtomicLong latency = new AtomicLong();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private volatile long ejectedAt;
+        private volatile boolean ejected;
+        private volatile boolean removed;
+
+        Endpoint(final String host, final InetSocketAddress address) {
+            this.host = host;
+            this.address = address;
+        }
+
+        /**
+         * Returns the configured hostname this endpoint has been resolved from.
+         *
+         * @return the hostname (e.g. for TLS hostname verification).
+         */
+        String getHost() {
+            return host;
+        }
+
+        InetSocketAddress getAddress() {
+            return address;
+        }
+
+        int getConnections() {
+            return connections.get();
+        }
+
+        long getOutstandingBytes() {
+            return outstandingBytes.get();
+        }
+
+        /**
+         * Returns the moving average of the write latency.
+         *
+         * @return the write latency (in nanoseconds).
+         */
+        long getLatency() {
+            return latency.get();
+        }
+
+        /**
+         * Calculates the current load of this endpoint - the lower the better.
+         *
+         * @return the load of this endpoint.
+         */
+        long load() {
+            // Microseconds to prevent an overflow
+            return (outstandingBytes.get() + 1) * (TimeUnit.NANOSECONDS.toMicros(latency.get()) + 1);
+        }
+
+        /**
+         * Checks if the address of this endpoint is no longer part of the resolution of its host.
+         *
+         * @return {@code true} if this endpoint has been removed.
+         */
+        boolean isRemoved() {
+            return removed;
+        }
+
+        boolean isEjected() {
+            return isEjected(nanoClock.getAsLong());
+        }
+
+        private boolean isEjected(final long now) {
+            if (ejected && now - ejectedAt >= ejectionNanos) {
+                ejected = false;
+            }
+            return ejected;
+        }
+
+        private boolean isPreferredOver(final Endpoint other, final long now) {
+            final boolean available = !isEjected(now);
+            if (available != !other.isEjected(now)) {
+                return available;
+            }
+
+            final int connectionCount = connections.get();
+            final int otherConnectionCount = other.connections.get();
+            if (connectionCount != otherConnectionCount) {
+                return connectionCount < otherConnectionCount;
+            }
+
+            return load() < other.load();
+        }
+
+        void connected() {
+            connections.incrementAndGet();
+            consecutiveFailures.set(0);
+        }
+
+        /**
+         * Records a closed connection.
+         *
+         * @param unflushedBytes the number of bytes that were still outstanding on the connection.
+         */
+        void disconnected(final long unflushedBytes) {
+            connections.decrementAndGet();
+            outstandingBytes.addAndGet(-unflushedBytes);
+        }
+
+        /**
+         * Records bytes that have been handed to the connection but not yet flushed.
+         *
+         * @param bytes the number of bytes.
+         */
+        void writeStarted(final long bytes) {
+            outstandingBytes.addAndGet(bytes);
+        }
+
+        /**
+         * Records a successful flush of outstanding bytes.
+         *
+         * @param bytes the number of flushed bytes.
+         * @param duration the time (in nanoseconds) the write took.
+         */
+        void writeCompleted(final long bytes, final long duration) {
+            outstandingBytes.addAndGet(-bytes);
+            latency.getAndUpdate(avg -> avg + ((duration - avg) >> LATENCY_EWMA_SHIFT));
+            consecutiveFailures.set(0);
+        }
+
+        /**
+         * Records a failed write. The outstanding bytes are lost.
+         *
+         * @param bytes the number of lost bytes.
+         */
+        void writeFailed(final long bytes) {
+            outstandingBytes.addAndGet(-bytes);
+            failed();
+        }
+
+        /**
+         * Records a failure (e.g. a failed connect) and ejects this endpoint if the failure
+         * threshold has been reached.
+         */
+        void failed() {
+            if (ejectionThreshold > 0 && consecutiveFailures.incrementAndGet() >= ejectionThreshold) {
+                consecutiveFailures.set(0);
+                ejectedAt = nanoClock.getAsLong();
+                ejected = true;
+                metrics.increment(GelfTcpAppender.METRIC_ENDPOINT_EJECTIONS);
+                status.addWarn(String.format("Ejected tcp://%s for %d ms after %d consecutive failures",
+                    this, ejectionTime, ejectionThreshold));
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s:%d (%s)", host, port, address.getAddress().getHostAddress());
+        }
+
+    }
+
+}
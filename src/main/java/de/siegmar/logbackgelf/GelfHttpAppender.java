@@ -32,22 +32,54 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
 
 import ch.qos.logback.classic.spi.ILoggingEvent;
-import ch.qos.logback.core.UnsynchronizedAppenderBase;
 import ch.qos.logback.core.encoder.Encoder;
 import de.siegmar.logbackgelf.compressor.Compressor;
+import de.siegmar.logbackgelf.compressor.ParallelGZIPCompressor;
 
-@SuppressWarnings("checkstyle:ClassFanOutComplexity")
-public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent> {
+@SuppressWarnings({"checkstyle:ClassFanOutComplexity", "checkstyle:ClassDataAbstractionCoupling"})
+public class GelfHttpAppender extends AbstractMeteredAppender {
+
+    /**
+     * Counter of messages that couldn't be scheduled for a retry because the retry buffer was full.
+     */
+    public static final String METRIC_RETRY_DROPPED = "http.retry_dropped";
+
+    /**
+     * Gauge of the number of bytes of all messages waiting for a retry.
+     */
+    public static final String METRIC_RETRY_BUFFERED_BYTES = "http.retry_buffered_bytes";
+
+    /**
+     * Gauge of the circuit breaker state (0 = closed, 1 = open, 2 = half-open).
+     */
+    public static final String METRIC_CIRCUIT_STATE = "http.circuit_state";
+
+    /**
+     * Counter of circuit breaker openings.
+     */
+    public static final String METRIC_CIRCUIT_OPENED = "http.circuit_opened";
+
+    /**
+     * Counter of messages dropped because of an open circuit breaker.
+     */
+    public static final String METRIC_CIRCUIT_REJECTED = "http.circuit_rejected";
+
+    private static final String METRIC_PREFIX = "http";
 
     private static final int DEFAULT_CONNECT_TIMEOUT = 15_000;
     private static final int DEFAULT_REQUEST_TIMEOUT = 5_000;
     private static final int DEFAULT_MAX_RETRIES = 2;
     private static final int DEFAULT_RETRY_DELAY = 3_000;
+    private static final int DEFAULT_MAX_RETRY_DELAY = 60_000;
+    private static final int DEFAULT_RETRY_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final int DEFAULT_CIRCUIT_BREAKER_COOL_DOWN = 30_000;
+    private static final int DEFAULT_PARALLEL_COMPRESSION_THRESHOLD = -1;
 
     /**
      * The URI to send messages to.
@@ -78,16 +110,71 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
      */
     private int retryDelay = DEFAULT_RETRY_DELAY;
 
+    /**
+     * If {@code true}, failed messages are retried in the background - the logging thread never
+     * waits between retry attempts. Default: false.
+     */
+    private boolean nonBlockingRetry;
+
+    /**
+     * Maximum time (in milliseconds) between retry attempts if nonBlockingRetry is enabled. The
+     * delay starts with retryDelay and doubles with every attempt.
+     * Default: {@value DEFAULT_MAX_RETRY_DELAY} milliseconds.
+     */
+    private int maxRetryDelay = DEFAULT_MAX_RETRY_DELAY;
+
+    /**
+     * Maximum number of bytes of all messages waiting for a retry if nonBlockingRetry is enabled.
+     * Default: {@value DEFAULT_RETRY_BUFFER_SIZE} bytes.
+     */
+    private int retryBufferSize = DEFAULT_RETRY_BUFFER_SIZE;
+
+    /**
+     * Number of consecutive failures after which the circuit breaker opens - messages are rejected
+     * immediately instead of waiting for timeouts. A value of 0 disables the circuit breaker.
+     * Default: 0.
+     */
+    private int circuitBreakerThreshold;
+
+    /**
+     * Time (in milliseconds) the circuit breaker stays open before a single probe message is sent.
+     * Default: {@value DEFAULT_CIRCUIT_BREAKER_COOL_DOWN} milliseconds.
+     */
+    private int circuitBreakerCoolDown = DEFAULT_CIRCUIT_BREAKER_COOL_DOWN;
+
     /**
      * Compression method used (NONE, GZIP or ZLIB). Default: GZIP.
      */
     private CompressionMethod compressionMethod = CompressionMethod.GZIP;
 
+    /**
+     * Minimum message size (in bytes) to compress a message using multiple threads (only GZIP).
+     * A value of -1 disables parallel compression. Default: {@value DEFAULT_PARALLEL_COMPRESSION_THRESHOLD}.
+     */
+    private int parallelCompressionThreshold = DEFAULT_PARALLEL_COMPRESSION_THRESHOLD;
+
+    /**
+     * Maximum number of threads used for parallel compression. Default: number of available processors.
+     */
+    private int parallelCompressionThreads = Runtime.getRuntime().availableProcessors();
+
     /**
      * The HTTP client to use for sending messages.
      */
     private HttpClient httpClient;
 
+    /**
+     * If {@code true}, a sequence number ({@code _seq}) and a sender id ({@code _sender_id}) are
+     * added to every message, so lost messages can be detected downstream. Default: false.
+     */
+    private boolean sequenceNumbers;
+
+    /**
+     * Sender id added to every message if sequenceNumbers is enabled. Default: random id, generated
+     * on start.
+     */
+    private String senderId;
+
     /**
      * The encoder to use for encoding log messages.
      */
@@ -95,6 +182,14 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
 
     private Compressor compressor;
 
+    private SequenceStamper sequenceStamper;
+
+    private ForkJoinPool compressionPool;
+
+    private RetryScheduler retryScheduler;
+
+    private CircuitBreaker circuitBreaker;
+
     public String getUri() {
         return uri.toString();
     }
@@ -143,6 +238,46 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
         this.retryDelay = retryDelay;
     }
 
+    public boolean isNonBlockingRetry() {
+        return nonBlockingRetry;
+    }
+
+    public void setNonBlockingRetry(final boolean nonBlockingRetry) {
+        this.nonBlockingRetry = nonBlockingRetry;
+    }
+
+    public int getMaxRetryDelay() {
+        return maxRetryDelay;
+    }
+
+    public void setMaxRetryDelay(final int maxRetryDelay) {
+        this.maxRetryDelay = maxRetryDelay;
+    }
+
+    public int getRetryBufferSize() {
+        return retryBufferSize;
+    }
+
+    public void setRetryBufferSize(final int retryBufferSize) {
+        this.retryBufferSize = retryBufferSize;
+    }
+
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    public void setCircuitBreakerThreshold(final int circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+
+    public int getCircuitBreakerCoolDown() {
+        return circuitBreakerCoolDown;
+    }
+
+    public void setCircuitBreakerCoolDown(final int circuitBreakerCoolDown) {
+        this.circuitBreakerCoolDown = circuitBreakerCoolDown;
+    }
+
     public CompressionMethod getCompressionMethod() {
         return compressionMethod;
     }
@@ -151,6 +286,38 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
         this.compressionMethod = compressionMethod;
     }
 
+    public int getParallelCompressionThreshold() {
+        return parallelCompressionThreshold;
+    }
+
+    public void setParallelCompressionThreshold(final int parallelCompressionThreshold) {
+        this.parallelCompressionThreshold = parallelCompressionThreshold;
+    }
+
+    public int getParallelCompressionThreads() {
+        return parallelCompressionThreads;
+    }
+
+    public void setParallelCompressionThreads(final int parallelCompressionThreads) {
+        this.parallelCompressionThreads = parallelCompressionThreads;
+    }
+
+    public boolean isSequenceNumbers() {
+        return sequenceNumbers;
+    }
+
+    public void setSequenceNumbers(final boolean sequenceNumbers) {
+        this.sequenceNumbers = sequenceNumbers;
+    }
+
+    public String getSenderId() {
+        return senderId;
+    }
+
+    public void setSenderId(final String senderId) {
+        this.senderId = senderId;
+    }
+
     public HttpClient getHttpClient() {
         return httpClient;
     }
@@ -192,11 +359,40 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
             }
         }
 
-        compressor = compressionMethod.getCompressor();
+        try {
+            sequenceStamper = SequenceStamper.create(sequenceNumbers, senderId);
+        } catch (final IllegalArgumentException e) {
+            addError("Couldn't start appender", e);
+            return;
+        }
+
+        compressor = buildCompressor();
+
+        circuitBreaker = new CircuitBreaker(circuitBreakerThreshold, circuitBreakerCoolDown, this, getUri(),
+            getMetrics(), METRIC_PREFIX);
+
+        if (nonBlockingRetry && maxRetries > 0) {
+            retryScheduler = new RetryScheduler(METRIC_PREFIX, maxRetries, retryDelay, maxRetryDelay, retryBufferSize,
+                this::retryRequest, this::sendFailed);
+            getMetrics().registerGauge(METRIC_RETRY_BUFFERED_BYTES, retryScheduler::getBufferedBytes);
+        }
 
         super.start();
     }
 
+    Compressor buildCompressor() {
+        if (parallelCompressionThreshold >= 0) {
+            if (compressionMethod == CompressionMethod.GZIP) {
+                compressionPool = new ForkJoinPool(parallelCompressionThreads);
+                return new ParallelGZIPCompressor(compressionPool, parallelCompressionThreshold);
+            }
+
+            addWarn("Parallel compression is only supported for GZIP compression - disabled");
+        }
+
+        return compressionMethod.getCompressor();
+    }
+
     private HttpClient buildHttpClient() throws NoSuchAlgorithmException, KeyManagementException {
         final HttpClient.Builder builder = HttpClient.newBuilder()
             .version(HttpClient.Version.HTTP_2)
@@ -214,16 +410,77 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
     @SuppressWarnings("checkstyle:IllegalCatch")
     @Override
     protected void append(final ILoggingEvent event) {
+        // Build the package before asking the circuit breaker - a failing encoder or compressor
+        // must not swallow the (half-open) probe request
+        final byte[] data;
         try {
-            final HttpRequest request = buildRequest(buildPackage(event));
-            RetryUtil.retry(() -> sendRequest(request), this::isStarted, maxRetries, retryDelay);
+            data = buildPackage(event);
         } catch (final Exception e) {
-            addError(String.format("Error sending message via %s", getUri()), e);
+            addError("Error encoding GELF message", e);
+            return;
         }
+
+        // Read once - the field is cleared on stop
+        final RetryScheduler scheduler = retryScheduler;
+        if (!circuitBreaker.allowRequest()) {
+            rejected(data, scheduler);
+        } else if (scheduler != null) {
+            sendOrScheduleRetry(data, scheduler);
+        } else {
+            try {
+                final HttpRequest request = buildRequest(data);
+                RetryUtil.retry(() -> send(request), this::isRetryAllowed, maxRetries, retryDelay);
+            } catch (final Exception e) {
+                sendFailed(e);
+            }
+        }
+    }
+
+    private boolean isRetryAllowed() {
+        return isStarted() && circuitBreaker.isClosed();
+    }
+
+    /**
+     * Handles a message rejected by the open circuit breaker - the message is spooled for a retry
+     * (if nonBlockingRetry is enabled) or dropped.
+     */
+    private void rejected(final byte[] data, final RetryScheduler scheduler) {
+        if (scheduler == null || !scheduler.schedule(data)) {
+            getMetrics().increment(METRIC_CIRCUIT_REJECTED);
+        }
+    }
+
+    private void retryRequest(final byte[] data) throws Exception {
+        if (!circuitBreaker.allowRequest()) {
+            throw new IllegalStateException("Circuit breaker is open");
+        }
+
+        send(buildRequest(data));
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void sendOrScheduleRetry(final byte[] data, final RetryScheduler scheduler) {
+        try {
+            send(buildRequest(data));
+        } catch (final Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+
+            if (!scheduler.schedule(data)) {
+                getMetrics().increment(METRIC_RETRY_DROPPED);
+                sendFailed(e);
+            }
+        }
+    }
+
+    private void sendFailed(final Exception e) {
+        addError(String.format("Error sending message via %s", getUri()), e);
     }
 
     private byte[] buildPackage(final ILoggingEvent event) {
-        return compressor.compress(encoder.encode(event));
+        final byte[] encoded = encoder.encode(event);
+        return compressor.compress(sequenceStamper.stamp(encoded));
     }
 
     private HttpRequest buildRequest(final byte[] data) {
@@ -253,6 +510,10 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
         }
     }
 
+    private int send(final HttpRequest request) throws Exception {
+        return circuitBreaker.call(() -> sendRequest(request));
+    }
+
     /**
      * Send request to Graylog server.
      *
@@ -282,6 +543,19 @@ public class GelfHttpAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
     public void stop() {
         encoder.stop();
 
+        if (retryScheduler != null) {
+            final int discarded = retryScheduler.close();
+            if (discarded > 0) {
+                addWarn(String.format("Discarded %d messages waiting for a retry", discarded));
+            }
+            retryScheduler = null;
+        }
+
+        if (compressionPool != null) {
+            compressionPool.shutdown();
+            compressionPool = null;
+        }
+
         super.stop();
     }
 
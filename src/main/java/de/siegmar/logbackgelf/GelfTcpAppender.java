@@ -19,20 +19,119 @@
 
 package de.siegmar.logbackgelf;
 
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import javax.net.SocketFactory;
 
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import de.siegmar.logbackgelf.pool.AbstractObjectPool;
+import de.siegmar.logbackgelf.pool.AffinityObjectPool;
+import de.siegmar.logbackgelf.pool.PooledObjectFactory;
 import de.siegmar.logbackgelf.pool.SimpleObjectPool;
 
+@SuppressWarnings({"checkstyle:ClassFanOutComplexity", "checkstyle:ClassDataAbstractionCoupling"})
 public class GelfTcpAppender extends AbstractGelfAppender {
 
+    /**
+     * Gauge of the number of messages queued for asynchronous sending.
+     */
+    public static final String METRIC_QUEUE_DEPTH = "tcp" + AsyncDispatcher.METRIC_QUEUE_DEPTH;
+
+    /**
+     * Counter of messages dropped because the queue for asynchronous sending was full.
+     */
+    public static final String METRIC_DROPPED = "tcp" + AsyncDispatcher.METRIC_DROPPED;
+
+    /**
+     * Counter of messages that couldn't be sent (after all retries).
+     */
+    public static final String METRIC_SEND_ERRORS = "tcp.send_errors";
+
+    /**
+     * Counter of (re-)connects of the NIO transport.
+     */
+    public static final String METRIC_RECONNECTS = "tcp.reconnects";
+
+    /**
+     * Counter of writes that have been aborted because they stalled longer than the write timeout.
+     */
+    public static final String METRIC_WRITE_TIMEOUTS = "tcp.write_timeouts";
+
+    /**
+     * Counter of endpoints that have been ejected because of consecutive failures.
+     */
+    public static final String METRIC_ENDPOINT_EJECTIONS = "tcp.endpoint_ejections";
+
+    /**
+     * Counter of connections that have been moved to another endpoint - because the address of their
+     * endpoint is gone or to balance the connections across endpoints.
+     */
+    public static final String METRIC_REBALANCES = "tcp.rebalances";
+
+    /**
+     * Gauge of the number of pooled connections that have been found closed by the peer (or broken
+     * otherwise) before they were used.
+     */
+    public static final String METRIC_DEAD_CONNECTIONS = "tcp.dead_connections";
+
+    /**
+     * Counter of messages that couldn't be scheduled for a retry because the retry buffer was full.
+     */
+    public static final String METRIC_RETRY_DROPPED = "tcp.retry_dropped";
+
+    /**
+     * Gauge of the number of bytes of all messages waiting for a retry.
+     */
+    public static final String METRIC_RETRY_BUFFERED_BYTES = "tcp.retry_buffered_bytes";
+
+    /**
+     * Gauge of the circuit breaker state (0 = closed, 1 = open, 2 = half-open).
+     */
+    public static final String METRIC_CIRCUIT_STATE = "tcp.circuit_state";
+
+    /**
+     * Counter of circuit breaker openings.
+     */
+    public static final String METRIC_CIRCUIT_OPENED = "tcp.circuit_opened";
+
+    /**
+     * Counter of messages dropped because of an open circuit breaker.
+     */
+    public static final String METRIC_CIRCUIT_REJECTED = "tcp.circuit_rejected";
+
     private static final int DEFAULT_CONNECT_TIMEOUT = 15_000;
     private static final int DEFAULT_SOCKET_TIMEOUT = 5_000;
     private static final int DEFAULT_RECONNECT_INTERVAL = 60;
     private static final int DEFAULT_MAX_RETRIES = 2;
     private static final int DEFAULT_RETRY_DELAY = 3_000;
+    private static final int DEFAULT_MAX_RETRY_DELAY = 60_000;
+    private static final int DEFAULT_RETRY_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final int DEFAULT_CIRCUIT_BREAKER_COOL_DOWN = 30_000;
+    private static final int DEFAULT_ENDPOINT_EJECTION_THRESHOLD = 3;
+    private static final int DEFAULT_ENDPOINT_EJECTION_TIME = 30_000;
     private static final int DEFAULT_POOL_SIZE = 2;
     private static final int DEFAULT_POOL_MAX_WAIT_TIME = 5_000;
     private static final int DEFAULT_POOL_MAX_IDLE_TIME = -1;
+    private static final int DEFAULT_WRITE_LINGER = 100;
+    private static final String METRIC_PREFIX = "tcp";
+    private static final int DEFAULT_SHUTDOWN_TIMEOUT = 1000;
+    private static final int DEFAULT_NIO_QUEUE_SIZE = 8192;
+
+    /**
+     * Interval (in milliseconds) of the maintenance tasks - checking the (cached) address resolution
+     * and moving at most one connection, probing idle pooled connections.
+     */
+    private static final long MAINTENANCE_INTERVAL = 1000;
 
     /**
      * Maximum time (in milliseconds) to wait for establishing a connection. A value of 0 disables
@@ -63,6 +162,59 @@ public class GelfTcpAppender extends AbstractGelfAppender {
      */
     private int retryDelay = DEFAULT_RETRY_DELAY;
 
+    /**
+     * If {@code true}, failed messages are retried in the background - the logging thread never
+     * waits between retry attempts. Default: false.
+     */
+    private boolean nonBlockingRetry;
+
+    /**
+     * Maximum time (in milliseconds) between retry attempts if nonBlockingRetry is enabled. The
+     * delay starts with retryDelay and doubles with every attempt.
+     * Default: {@value DEFAULT_MAX_RETRY_DELAY} milliseconds.
+     */
+    private int maxRetryDelay = DEFAULT_MAX_RETRY_DELAY;
+
+    /**
+     * Maximum number of bytes of all messages waiting for a retry if nonBlockingRetry is enabled.
+     * Default: {@value DEFAULT_RETRY_BUFFER_SIZE} bytes.
+     */
+    private int retryBufferSize = DEFAULT_RETRY_BUFFER_SIZE;
+
+    /**
+     * Number of consecutive failures after which the circuit breaker opens - messages are rejected
+     * immediately instead of waiting for timeouts. A value of 0 disables the circuit breaker.
+     * Default: 0.
+     */
+    private int circuitBreakerThreshold;
+
+    /**
+     * Time (in milliseconds) the circuit breaker stays open before a single probe message is sent.
+     * Default: {@value DEFAULT_CIRCUIT_BREAKER_COOL_DOWN} milliseconds.
+     */
+    private int circuitBreakerCoolDown = DEFAULT_CIRCUIT_BREAKER_COOL_DOWN;
+
+    /**
+     * Number of consecutive failures after that a single Graylog server (one resolved address of
+     * one of the configured hosts) is ejected - no new connections are established to it until the
+     * ejection time has elapsed. A value of 0 disables ejection.
+     * Default: {@value DEFAULT_ENDPOINT_EJECTION_THRESHOLD}.
+     */
+    private int endpointEjectionThreshold = DEFAULT_ENDPOINT_EJECTION_THRESHOLD;
+
+    /**
+     * Time (in milliseconds) a failing Graylog server is ejected.
+     * Default: {@value DEFAULT_ENDPOINT_EJECTION_TIME} milliseconds.
+     */
+    private int endpointEjectionTime = DEFAULT_ENDPOINT_EJECTION_TIME;
+
+    /**
+     * Time (in milliseconds) without activity after that a pooled connection is checked for being
+     * closed by the peer before it is used. Idle connections are checked in the background as well.
+     * A value of 0 disables the check. Default: 0 (disabled).
+     */
+    private int livenessCheckIdleTime;
+
     /**
      * Number of concurrent tcp connections (minimum 1). Default: {@value DEFAULT_POOL_SIZE}.
      */
@@ -82,7 +234,105 @@ public class GelfTcpAppender extends AbstractGelfAppender {
      */
     private int poolMaxIdleTime = DEFAULT_POOL_MAX_IDLE_TIME;
 
-    private SimpleObjectPool<TcpConnection> connectionPool;
+    /**
+     * If {@code true}, a lock-free pool is used that hands out the connection a thread used last
+     * (if available). Default: false.
+     */
+    private boolean poolAffinity;
+
+    /**
+     * If {@code true}, all pooled connections are established in the background when the appender
+     * is started (and when a connection is replaced). Connections that are about to expire (see
+     * reconnectInterval and poolMaxIdleTime) are replaced ahead of time. Default: false.
+     */
+    private boolean poolWarmUp;
+
+    /**
+     * Percentage (0-100) by which the reconnectInterval of every connection is randomly reduced,
+     * so connections don't expire at the same time. Default: 0.
+     */
+    private int reconnectJitter;
+
+    /**
+     * Size (in bytes) of the buffer that coalesces writes of a connection. A value of 0 disables
+     * buffering - every message is flushed immediately. Default: 0.
+     */
+    private int writeBufferSize;
+
+    /**
+     * Maximum time (in milliseconds) a message is held in the write buffer before it is flushed
+     * (only used if writeBufferSize is &gt; 0). Default: {@value DEFAULT_WRITE_LINGER} milliseconds.
+     */
+    private int writeLinger = DEFAULT_WRITE_LINGER;
+
+    /**
+     * If {@code true}, messages of level ERROR are flushed immediately (together with all
+     * previously buffered messages). Default: true.
+     */
+    private boolean flushOnError = true;
+
+    /**
+     * If {@code true}, connections use sockets backed by a {@link java.nio.channels.SocketChannel},
+     * so an unbuffered message and its terminator are sent with a single gathering write.
+     * Default: false.
+     */
+    private boolean gatheringWrites;
+
+    /**
+     * Number of messages that can be queued for asynchronous sending. If set to 0, messages are
+     * sent synchronously by the logging thread. Default: 0.
+     */
+    private int asyncQueueSize;
+
+    /**
+     * What to do if the queue for asynchronous sending is full (DROP_NEWEST, DROP_OLDEST or
+     * BLOCK). Default: DROP_NEWEST.
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+    /**
+     * Maximum time (in milliseconds) to wait for queued messages to be sent when the appender
+     * is stopped. Default: {@value DEFAULT_SHUTDOWN_TIMEOUT} milliseconds.
+     */
+    private int shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+
+    /**
+     * If {@code true}, all connections are handled by a single I/O thread using non-blocking
+     * channels. Not supported for TLS. Default: false.
+     */
+    private boolean nioTransport;
+
+    /**
+     * Maximum time (in milliseconds) a write may stall before the connection is closed and
+     * re-opened. Applies to the blocking and the NIO transport. A value of 0 disables the write
+     * timeout. Default: 0 (disabled).
+     */
+    private int writeTimeout;
+
+    private AsyncDispatcher dispatcher;
+
+    private RetryScheduler retryScheduler;
+
+    private CircuitBreaker circuitBreaker;
+
+    private NioTcpTransport nioTcpTransport;
+
+    private EndpointSelector endpointSelector;
+
+    private ScheduledExecutorService flushExecutor;
+
+    private ScheduledExecutorService watchdogExecutor;
+
+    private ScheduledExecutorService maintenanceExecutor;
+
+    private ScheduledExecutorService poolExecutor;
+
+    private AbstractObjectPool<TcpConnection> connectionPool;
+
+    /**
+     * Socket factories by hostname - created once per host (see {@link #initSocketFactory(String)}).
+     */
+    private final Map<String, SocketFactory> socketFactories = new ConcurrentHashMap<>();
 
     public int getConnectTimeout() {
         return connectTimeout;
@@ -124,6 +374,70 @@ public class GelfTcpAppender extends AbstractGelfAppender {
         this.retryDelay = retryDelay;
     }
 
+    public boolean isNonBlockingRetry() {
+        return nonBlockingRetry;
+    }
+
+    public void setNonBlockingRetry(final boolean nonBlockingRetry) {
+        this.nonBlockingRetry = nonBlockingRetry;
+    }
+
+    public int getMaxRetryDelay() {
+        return maxRetryDelay;
+    }
+
+    public void setMaxRetryDelay(final int maxRetryDelay) {
+        this.maxRetryDelay = maxRetryDelay;
+    }
+
+    public int getRetryBufferSize() {
+        return retryBufferSize;
+    }
+
+    public void setRetryBufferSize(final int retryBufferSize) {
+        this.retryBufferSize = retryBufferSize;
+    }
+
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    public void setCircuitBreakerThreshold(final int circuitBreakerThreshold) {
+        this.circuitBreakerThreshold = circuitBreakerThreshold;
+    }
+
+    public int getCircuitBreakerCoolDown() {
+        return circuitBreakerCoolDown;
+    }
+
+    public void setCircuitBreakerCoolDown(final int circuitBreakerCoolDown) {
+        this.circuitBreakerCoolDown = circuitBreakerCoolDown;
+    }
+
+    public int getEndpointEjectionThreshold() {
+        return endpointEjectionThreshold;
+    }
+
+    public void setEndpointEjectionThreshold(final int endpointEjectionThreshold) {
+        this.endpointEjectionThreshold = endpointEjectionThreshold;
+    }
+
+    public int getEndpointEjectionTime() {
+        return endpointEjectionTime;
+    }
+
+    public void setEndpointEjectionTime(final int endpointEjectionTime) {
+        this.endpointEjectionTime = endpointEjectionTime;
+    }
+
+    public int getLivenessCheckIdleTime() {
+        return livenessCheckIdleTime;
+    }
+
+    public void setLivenessCheckIdleTime(final int livenessCheckIdleTime) {
+        this.livenessCheckIdleTime = livenessCheckIdleTime;
+    }
+
     public int getPoolSize() {
         return poolSize;
     }
@@ -148,43 +462,533 @@ public class GelfTcpAppender extends AbstractGelfAppender {
         this.poolMaxIdleTime = poolMaxIdleTime;
     }
 
+    public boolean isPoolAffinity() {
+        return poolAffinity;
+    }
+
+    public void setPoolAffinity(final boolean poolAffinity) {
+        this.poolAffinity = poolAffinity;
+    }
+
+    public boolean isPoolWarmUp() {
+        return poolWarmUp;
+    }
+
+    public void setPoolWarmUp(final boolean poolWarmUp) {
+        this.poolWarmUp = poolWarmUp;
+    }
+
+    public int getReconnectJitter() {
+        return reconnectJitter;
+    }
+
+    public void setReconnectJitter(final int reconnectJitter) {
+        this.reconnectJitter = reconnectJitter;
+    }
+
+    public int getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public void setWriteBufferSize(final int writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    public int getWriteLinger() {
+        return writeLinger;
+    }
+
+    public void setWriteLinger(final int writeLinger) {
+        this.writeLinger = writeLinger;
+    }
+
+    public boolean isFlushOnError() {
+        return flushOnError;
+    }
+
+    public void setFlushOnError(final boolean flushOnError) {
+        this.flushOnError = flushOnError;
+    }
+
+    public boolean isGatheringWrites() {
+        return gatheringWrites;
+    }
+
+    public void setGatheringWrites(final boolean gatheringWrites) {
+        this.gatheringWrites = gatheringWrites;
+    }
+
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    public void setAsyncQueueSize(final int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy must not be null");
+    }
+
+    public int getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(final int shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    public boolean isNioTransport() {
+        return nioTransport;
+    }
+
+    public void setNioTransport(final boolean nioTransport) {
+        this.nioTransport = nioTransport;
+    }
+
+    public int getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    public void setWriteTimeout(final int writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+
     @Override
-    protected void startAppender() {
-        final AddressResolver addressResolver = new AddressResolver(getGraylogHost());
+    protected void startAppender() throws IOException {
+        // The configuration may have been changed since the last start
+        socketFactories.clear();
+
+        endpointSelector = newEndpointSelector();
+        connectionPool = newConnectionPool();
+        getMetrics().registerGauge(METRIC_DEAD_CONNECTIONS, connectionPool::getDeadObjectCount);
+
+        if (writeBufferSize > 0) {
+            startFlushExecutor();
+        }
+
+        if (nioTransport) {
+            startNioTransport();
+        } else if (asyncQueueSize > 0) {
+            startDispatcher();
+        }
+
+        startMaintenance();
+
+        circuitBreaker = new CircuitBreaker(circuitBreakerThreshold, circuitBreakerCoolDown, this,
+            String.format("tcp://%s:%s", getGraylogHost(), getGraylogPort()), getMetrics(), METRIC_PREFIX);
+        warnIgnoredOptions();
+
+        // The NIO transport handles write timeouts and retries on its own
+        if (nioTcpTransport == null) {
+            if (writeTimeout > 0) {
+                startWriteWatchdog();
+            }
+
+            // Asynchronous writers don't block logging threads anyway
+            if (nonBlockingRetry && maxRetries > 0 && dispatcher == null) {
+                retryScheduler = new RetryScheduler(METRIC_PREFIX, maxRetries, retryDelay, maxRetryDelay,
+                    retryBufferSize, this::retryMessage, this::sendFailed);
+                getMetrics().registerGauge(METRIC_RETRY_BUFFERED_BYTES, retryScheduler::getBufferedBytes);
+            }
+        }
+    }
+
+    private void warnIgnoredOptions() {
+        if (nioTcpTransport != null && circuitBreakerThreshold > 0) {
+            addWarn("circuitBreakerThreshold is not supported by the NIO transport - ignored");
+        }
+
+        if (nonBlockingRetry && (nioTcpTransport != null || dispatcher != null)) {
+            addWarn("nonBlockingRetry is not supported with asynchronous sending (asyncQueueSize or nioTransport)"
+                + " - ignored");
+        }
+    }
+
+    private EndpointSelector newEndpointSelector() {
+        final List<AddressResolver> resolvers = new ArrayList<>();
+        for (final String host : getGraylogHost().split(",")) {
+            if (!host.isBlank()) {
+                resolvers.add(newAddressResolver(host.strip()));
+            }
+        }
+
+        return new EndpointSelector(resolvers, getGraylogPort(), endpointEjectionThreshold, endpointEjectionTime,
+            this, getMetrics());
+    }
+
+    private AbstractObjectPool<TcpConnection> newConnectionPool() {
+        // The pool isn't used by the NIO transport - no need to establish its connections
+        if (poolWarmUp && !(nioTransport && isNioTransportSupported())) {
+            addInfo(String.format("Establishing %d pooled connections to tcp://%s:%s in the background",
+                poolSize, getGraylogHost(), getGraylogPort()));
+            poolExecutor = Executors.newScheduledThreadPool(poolSize, new DaemonThreadFactory("tcp-pool"));
+        }
+
+        final PooledObjectFactory<TcpConnection> connectionFactory = this::newConnection;
+
+        return poolAffinity
+            ? new AffinityObjectPool<>(connectionFactory, poolSize, poolMaxWaitTime, reconnectInterval,
+                poolMaxIdleTime, poolExecutor, reconnectJitter)
+            : new SimpleObjectPool<>(connectionFactory, poolSize, poolMaxWaitTime, reconnectInterval,
+                poolMaxIdleTime, poolExecutor, reconnectJitter);
+    }
+
+    private void startDispatcher() {
+        // One writer per pooled connection
+        dispatcher = new AsyncDispatcher(getName() != null ? getName() : METRIC_PREFIX, poolSize,
+            asyncQueueSize, overflowPolicy, getMetrics(), METRIC_PREFIX, this::sendBatch);
+        dispatcher.start();
+    }
+
+    private void startMaintenance() {
+        // Without DNS cache, changes of the resolution aren't tracked
+        final boolean rebalance = getDnsCacheTtl() > 0;
+
+        // The NIO transport detects connections closed by the peer on its own
+        final boolean probe = livenessCheckIdleTime > 0 && nioTcpTransport == null;
+
+        if (!rebalance && !probe) {
+            return;
+        }
+
+        maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("tcp-maintenance"));
+
+        if (rebalance) {
+            maintenanceExecutor.scheduleWithFixedDelay(this::rebalance, MAINTENANCE_INTERVAL, MAINTENANCE_INTERVAL,
+                TimeUnit.MILLISECONDS);
+        }
+
+        if (probe) {
+            maintenanceExecutor.scheduleWithFixedDelay(connectionPool::probeIdleObjects, MAINTENANCE_INTERVAL,
+                MAINTENANCE_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Moves at most one connection per run - connections to removed endpoints first - so changes of
+     * the address resolution don't cause a reconnect storm.
+     */
+    private void rebalance() {
+        try {
+            endpointSelector.refresh();
+        } catch (final UnknownHostException e) {
+            // Nothing to rebalance to - keep the current connections
+            return;
+        }
+
+        final boolean moved = nioTcpTransport != null ? nioTcpTransport.rebalance() : rebalancePool();
+        if (moved) {
+            getMetrics().increment(METRIC_REBALANCES);
+        }
+    }
+
+    private boolean rebalancePool() {
+        final List<TcpConnection> candidates = new ArrayList<>();
+        connectionPool.forEach(tcpConnection -> {
+            final EndpointSelector.Endpoint endpoint = tcpConnection.getEndpoint();
+            if (endpoint != null && endpointSelector.shouldMove(endpoint)) {
+                candidates.add(endpoint.isRemoved() ? 0 : candidates.size(), tcpConnection);
+            }
+        });
+
+        for (final TcpConnection candidate : candidates) {
+            final EndpointSelector.Endpoint endpoint = candidate.getEndpoint();
+            if (connectionPool.replaceObject(candidate)) {
+                addInfo(String.format("Moving pooled connection away from tcp://%s", endpoint));
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void startFlushExecutor() {
+        if (writeLinger < 1) {
+            throw new IllegalArgumentException("writeLinger must be > 0");
+        }
 
-        connectionPool = new SimpleObjectPool<>(() -> new TcpConnection(initSocketFactory(),
-            addressResolver, getGraylogPort(), connectTimeout, socketTimeout),
-            poolSize, poolMaxWaitTime, reconnectInterval, poolMaxIdleTime);
+        // Check twice per linger time - a message is flushed after 1.5 x writeLinger at most
+        final long period = Math.max(1, writeLinger / 2);
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("tcp-flush"));
+        flushExecutor.scheduleAtFixedRate(this::flushLingering, period, period, TimeUnit.MILLISECONDS);
     }
 
+    private void startWriteWatchdog() {
+        // Check four times per timeout - a stalled write is aborted after 1.25 x writeTimeout at most
+        final long period = Math.max(1, writeTimeout / 4);
+        watchdogExecutor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("tcp-watchdog"));
+        watchdogExecutor.scheduleAtFixedRate(this::abortStalledWrites, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    private void abortStalledWrites() {
+        final long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(writeTimeout);
+        connectionPool.forEach(tcpConnection -> {
+            if (tcpConnection.abortStalledWrite(timeoutNanos)) {
+                getMetrics().increment(METRIC_WRITE_TIMEOUTS);
+                addWarn(String.format("Write to tcp://%s:%s stalled for more than %d ms - connection closed",
+                    getGraylogHost(), getGraylogPort(), writeTimeout));
+            }
+        });
+    }
+
+    private TcpConnection newConnection() {
+        final TcpConnection tcpConnection = new TcpConnection(this::socketFactory, endpointSelector,
+            connectTimeout, socketTimeout, writeBufferSize, livenessCheckIdleTime);
+
+        if (poolExecutor != null) {
+            try {
+                tcpConnection.connect();
+                addInfo(String.format("Pooled connection to tcp://%s established",
+                    tcpConnection.getEndpoint()));
+            } catch (final IOException e) {
+                // The connection is handed out anyway and connects on its first use
+                addWarn(String.format("Couldn't establish pooled connection to tcp://%s:%s in advance",
+                    getGraylogHost(), getGraylogPort()), e);
+            }
+        }
+
+        return tcpConnection;
+    }
+
+    private void startNioTransport() throws IOException {
+        if (!isNioTransportSupported()) {
+            addWarn("NIO transport is not supported by this appender - using blocking transport");
+            return;
+        }
+
+        nioTcpTransport = new NioTcpTransport(this, endpointSelector,
+            asyncQueueSize > 0 ? asyncQueueSize : DEFAULT_NIO_QUEUE_SIZE);
+        nioTcpTransport.start();
+    }
+
+    /**
+     * Defines if the NIO transport can be used by this appender.
+     *
+     * @return {@code true} if the NIO transport is supported.
+     */
+    protected boolean isNioTransportSupported() {
+        return true;
+    }
+
+    private void flushLingering() {
+        final long lingerNanos = TimeUnit.MILLISECONDS.toNanos(writeLinger);
+        connectionPool.forEach(tcpConnection -> {
+            try {
+                tcpConnection.flushIfLingered(lingerNanos);
+            } catch (final IOException e) {
+                // The broken connection is replaced by the pool before it is used again
+                getMetrics().add(METRIC_SEND_ERRORS, tcpConnection.getLostMessages());
+                addError(String.format("Error flushing buffered messages via tcp://%s",
+                    tcpConnection.getEndpoint()), e);
+            }
+        });
+    }
+
+    /**
+     * Creates the socket factory. If gatheringWrites is enabled, sockets are backed by a
+     * {@link java.nio.channels.SocketChannel}, so a message and its terminator are sent with a
+     * single gathering write.
+     *
+     * @return the socket factory.
+     */
     protected SocketFactory initSocketFactory() {
-        return SocketFactory.getDefault();
+        return gatheringWrites ? ChannelSocketFactory.INSTANCE : SocketFactory.getDefault();
+    }
+
+    private SocketFactory socketFactory(final String host) {
+        return socketFactories.computeIfAbsent(host, this::initSocketFactory);
+    }
+
+    /**
+     * Creates the socket factory for connections to the given host. Called once per host - the
+     * factory is reused for all connections to that host.
+     *
+     * @param host the configured hostname of the Graylog server to connect to.
+     * @return the socket factory.
+     */
+    protected SocketFactory initSocketFactory(final String host) {
+        return initSocketFactory();
+    }
+
+    @Override
+    protected void appendMessage(final byte[] messageToSend, final ILoggingEvent event) {
+        append(messageToSend, flushOnError && event.getLevel().isGreaterOrEqual(Level.ERROR));
     }
 
-    @SuppressWarnings("checkstyle:IllegalCatch")
     @Override
     protected void appendMessage(final byte[] messageToSend) {
+        append(messageToSend, false);
+    }
+
+    private void append(final byte[] messageToSend, final boolean flush) {
+        // Read once - the fields are cleared on stop
+        final NioTcpTransport nio = nioTcpTransport;
+        final AsyncDispatcher asyncDispatcher = dispatcher;
+        if (nio != null) {
+            nio.send(messageToSend);
+        } else if (asyncDispatcher != null) {
+            asyncDispatcher.dispatch(messageToSend);
+        } else {
+            send(messageToSend, flush);
+        }
+    }
+
+    /**
+     * Sends a batch of queued messages with a single write (called by the writer threads).
+     *
+     * @param messagesToSend the messages to send.
+     */
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void sendBatch(final List<byte[]> messagesToSend) {
+        if (!circuitBreaker.allowRequest()) {
+            getMetrics().add(METRIC_CIRCUIT_REJECTED, messagesToSend.size());
+            return;
+        }
+
         try {
-            RetryUtil.retry(() -> sendMessage(messageToSend), this::isStarted, maxRetries, retryDelay);
+            RetryUtil.retry(() -> circuitBreaker.call(() -> {
+                connectionPool.execute(tcpConnection -> tcpConnection.write(messagesToSend, false));
+                return null;
+            }), this::isRetryAllowed, maxRetries, retryDelay);
         } catch (final Exception e) {
-            addError(String.format("Error sending message via tcp://%s:%s",
-                getGraylogHost(), getGraylogPort()), e);
+            getMetrics().add(METRIC_SEND_ERRORS, messagesToSend.size());
+            addError(String.format("Error sending %d messages via tcp://%s:%s",
+                messagesToSend.size(), getGraylogHost(), getGraylogPort()), e);
         }
     }
 
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void send(final byte[] messageToSend, final boolean flush) {
+        final RetryScheduler scheduler = retryScheduler;
+        if (!circuitBreaker.allowRequest()) {
+            rejected(messageToSend, scheduler);
+        } else if (scheduler != null) {
+            sendOrScheduleRetry(messageToSend, flush, scheduler);
+        } else {
+            try {
+                RetryUtil.retry(() -> sendMessage(messageToSend, flush), this::isRetryAllowed, maxRetries,
+                    retryDelay);
+            } catch (final Exception e) {
+                sendFailed(e);
+            }
+        }
+    }
+
+    private boolean isRetryAllowed() {
+        return isStarted() && circuitBreaker.isClosed();
+    }
+
+    /**
+     * Handles a message rejected by the open circuit breaker - the message is spooled for a retry
+     * (if nonBlockingRetry is enabled) or dropped.
+     */
+    private void rejected(final byte[] messageToSend, final RetryScheduler scheduler) {
+        if (scheduler == null || !scheduler.schedule(messageToSend)) {
+            getMetrics().increment(METRIC_CIRCUIT_REJECTED);
+        }
+    }
+
+    private void retryMessage(final byte[] messageToSend) throws Exception {
+        if (!circuitBreaker.allowRequest()) {
+            throw new IllegalStateException("Circuit breaker is open");
+        }
+
+        sendMessage(messageToSend, false);
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void sendOrScheduleRetry(final byte[] messageToSend, final boolean flush,
+                                     final RetryScheduler scheduler) {
+        try {
+            sendMessage(messageToSend, flush);
+        } catch (final Exception e) {
+            if (!scheduler.schedule(messageToSend)) {
+                getMetrics().increment(METRIC_RETRY_DROPPED);
+                sendFailed(e);
+            }
+        }
+    }
+
+    private void sendFailed(final Exception e) {
+        getMetrics().increment(METRIC_SEND_ERRORS);
+        addError(String.format("Error sending message via tcp://%s:%s",
+            getGraylogHost(), getGraylogPort()), e);
+    }
+
     /**
      * Send message to socket's output stream.
      *
      * @param messageToSend message to send.
+     * @param flush if {@code true}, the message is flushed immediately (even in buffered mode).
      */
-    private Void sendMessage(final byte[] messageToSend) throws Exception {
-        connectionPool.execute(tcpConnection -> tcpConnection.write(messageToSend));
-        return null;
+    private Void sendMessage(final byte[] messageToSend, final boolean flush) throws Exception {
+        return circuitBreaker.call(() -> {
+            connectionPool.execute(tcpConnection -> tcpConnection.write(messageToSend, flush));
+            return null;
+        });
     }
 
     @Override
     protected void close() {
-        connectionPool.close();
+        // All components are released - a later start creates them according to the (possibly
+        // changed) configuration
+        try {
+            if (nioTcpTransport != null) {
+                nioTcpTransport.close(shutdownTimeout);
+            }
+
+            if (dispatcher != null) {
+                dispatcher.close(shutdownTimeout);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            nioTcpTransport = null;
+            dispatcher = null;
+        }
+
+        if (retryScheduler != null) {
+            final int discarded = retryScheduler.close();
+            if (discarded > 0) {
+                addWarn(String.format("Discarded %d messages waiting for a retry", discarded));
+            }
+            retryScheduler = null;
+        }
+
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+            flushExecutor = null;
+        }
+
+        if (maintenanceExecutor != null) {
+            maintenanceExecutor.shutdownNow();
+            maintenanceExecutor = null;
+        }
+
+        // Flushes all buffered messages (guarded by the watchdog) - startAppender may have failed
+        // before the pool has been created. The pool is closed before its executor is shut down,
+        // so connections invalidated meanwhile can still be replaced (and are closed right away).
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+        if (endpointSelector != null) {
+            endpointSelector.close();
+        }
+
+        if (poolExecutor != null) {
+            poolExecutor.shutdownNow();
+            poolExecutor = null;
+        }
+
+        if (watchdogExecutor != null) {
+            watchdogExecutor.shutdownNow();
+            watchdogExecutor = null;
+        }
     }
 
 }
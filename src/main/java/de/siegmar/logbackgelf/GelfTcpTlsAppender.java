@@ -47,23 +47,45 @@ public class GelfTcpTlsAppender extends GelfTcpAppender {
         this.insecure = insecure;
     }
 
+    /**
+     * The NIO transport doesn't support TLS.
+     *
+     * @return {@code false}.
+     */
+    @Override
+    protected boolean isNioTransportSupported() {
+        return false;
+    }
+
     @Override
     protected SSLSocketFactory initSocketFactory() {
+        return initSocketFactory(getGraylogHost());
+    }
+
+    /**
+     * Creates the socket factory for a connection to the given host - the server certificate is
+     * verified against this hostname.
+     *
+     * @param host the configured hostname of the Graylog server to connect to.
+     * @return the socket factory.
+     */
+    @Override
+    protected SSLSocketFactory initSocketFactory(final String host) {
         try {
-            return configureSslFactory(newTrustManager());
+            return configureSslFactory(newTrustManager(host));
         } catch (final GeneralSecurityException e) {
             throw new IllegalStateException(e);
         }
     }
 
-    private TrustManager newTrustManager() throws NoSuchAlgorithmException, KeyStoreException {
+    private TrustManager newTrustManager(final String host) throws NoSuchAlgorithmException, KeyStoreException {
         if (insecure) {
             addWarn("Enabled insecure mode (skip TLS certificate validation)"
                 + " - don't use this in production!");
             return new NoopX509TrustManager();
         }
 
-        return new CustomX509TrustManager(findDefaultX509TrustManager(), getGraylogHost());
+        return new CustomX509TrustManager(findDefaultX509TrustManager(), host);
     }
 
     private static X509TrustManager findDefaultX509TrustManager()
@@ -20,23 +20,95 @@
 package de.siegmar.logbackgelf;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
 import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
 import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.List;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.LongSupplier;
 
 import de.siegmar.logbackgelf.compressor.Compressor;
 
 public class GelfUdpAppender extends AbstractGelfAppender {
 
+    /**
+     * Counter of ICMP port unreachable errors reported by a connected channel.
+     */
+    public static final String METRIC_PORT_UNREACHABLE = "udp.port_unreachable";
+
+    /**
+     * Counter of (re-)connects of a connected channel caused by a changed address resolution.
+     */
+    public static final String METRIC_RECONNECTS = "udp.reconnects";
+
+    /**
+     * Counter of messages that couldn't be sent.
+     */
+    public static final String METRIC_SEND_ERRORS = "udp.send_errors";
+
+    /**
+     * Gauge of the number of messages queued for asynchronous sending.
+     */
+    public static final String METRIC_QUEUE_DEPTH = "udp" + AsyncDispatcher.METRIC_QUEUE_DEPTH;
+
+    /**
+     * Counter of messages dropped because the queue for asynchronous sending was full.
+     */
+    public static final String METRIC_DROPPED = "udp" + AsyncDispatcher.METRIC_DROPPED;
+
+    /**
+     * Counter of messages that had to wait because of the configured rate limits.
+     */
+    public static final String METRIC_PACED = "udp.paced";
+
+    /**
+     * Counter of messages dropped because they would have exceeded the maximum pacing delay.
+     */
+    public static final String METRIC_PACING_DROPPED = "udp.pacing_dropped";
+
+    /**
+     * Counter of messages dropped because the socket send buffer was full (in non-blocking mode).
+     */
+    public static final String METRIC_SEND_BUFFER_FULL = "udp.send_buffer_full";
+
+    /**
+     * Gauge of the effective socket send buffer size (SO_SNDBUF) in bytes.
+     */
+    public static final String METRIC_SEND_BUFFER_SIZE = "udp.send_buffer_size";
+
+    private static final String METRIC_PREFIX = "udp";
+    private static final int DEFAULT_SHUTDOWN_TIMEOUT = 1000;
+    private static final int DEFAULT_SEND_BUFFER_FULL_TIMEOUT = 100;
+    private static final int DEFAULT_PACING_BURST = 100;
+    private static final int DEFAULT_MAX_PACING_DELAY = 1000;
+
     /**
      * Maximum size of GELF chunks in bytes. Default chunk size is 508 - this prevents
      * IP packet fragmentation. This is also the recommended minimum.
      */
     private Integer maxChunkSize;
 
+    /**
+     * If {@code true}, the chunk size is derived from the MTU of the network interface that is used
+     * to reach the Graylog server. If maxChunkSize is also set, it limits the detected size.
+     * Default: false.
+     */
+    private boolean autoChunkSize;
+
     /**
      * Compression method used (NONE, GZIP or ZLIB). Default: GZIP.
      */
@@ -44,7 +116,98 @@ public class GelfUdpAppender extends AbstractGelfAppender {
 
     private LongSupplier messageIdSupplier = new MessageIdSupplier();
 
-    private RobustChannel robustChannel;
+    /**
+     * If {@code true}, the channel is connected to the resolved Graylog address and will only be
+     * re-connected if the resolved set of addresses changes. Without DNS cache (see dnsCacheTtl),
+     * the address is resolved only once. Default: false.
+     */
+    private boolean connectChannel;
+
+    /**
+     * Number of channels used for sending. Threads are assigned to a channel by their id - this
+     * reduces contention on the per-channel write lock if many threads log concurrently.
+     * Default: 1.
+     */
+    private int channelStripes = 1;
+
+    /**
+     * Number of messages that can be queued for asynchronous sending. If set to 0, messages are
+     * sent synchronously by the logging thread. Default: 0.
+     */
+    private int asyncQueueSize;
+
+    /**
+     * Number of threads sending queued messages (only used if asyncQueueSize is &gt; 0).
+     * Default: 1.
+     */
+    private int asyncSenderThreads = 1;
+
+    /**
+     * What to do if the queue for asynchronous sending is full (DROP_NEWEST, DROP_OLDEST or
+     * BLOCK). Default: DROP_NEWEST.
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_NEWEST;
+
+    /**
+     * Maximum time (in milliseconds) to wait for queued messages to be sent when the appender
+     * is stopped. Default: {@value DEFAULT_SHUTDOWN_TIMEOUT} milliseconds.
+     */
+    private int shutdownTimeout = DEFAULT_SHUTDOWN_TIMEOUT;
+
+    /**
+     * Maximum number of bytes (including chunk headers) to send per second. A value of 0 disables
+     * the limit. Default: 0.
+     */
+    private long maxBytesPerSecond;
+
+    /**
+     * Maximum number of datagrams (chunks) to send per second. A value of 0 disables the limit.
+     * Default: 0.
+     */
+    private int maxPacketsPerSecond;
+
+    /**
+     * Burst allowance (in milliseconds of the configured rates) - how much may be sent at once
+     * after a period of inactivity. Default: {@value DEFAULT_PACING_BURST} milliseconds.
+     */
+    private int pacingBurst = DEFAULT_PACING_BURST;
+
+    /**
+     * Maximum time (in milliseconds) a message may be delayed because of the configured rates.
+     * Messages that would have to wait longer are dropped.
+     * Default: {@value DEFAULT_MAX_PACING_DELAY} milliseconds.
+     */
+    private int maxPacingDelay = DEFAULT_MAX_PACING_DELAY;
+
+    /**
+     * If {@code true}, the channel is used in non-blocking mode - a full socket send buffer doesn't
+     * block the sending thread but triggers the sendBufferFullPolicy. Default: false.
+     */
+    private boolean nonBlocking;
+
+    /**
+     * Size of the socket send buffer (SO_SNDBUF) in bytes. A value of 0 uses the system default.
+     * Default: 0.
+     */
+    private int sendBufferSize;
+
+    /**
+     * What to do if the socket send buffer is full in non-blocking mode (DROP or WAIT).
+     * Default: WAIT.
+     */
+    private SendBufferFullPolicy sendBufferFullPolicy = SendBufferFullPolicy.WAIT;
+
+    /**
+     * Maximum time (in milliseconds) to wait for the channel to become writable if the
+     * sendBufferFullPolicy is WAIT. Default: {@value DEFAULT_SEND_BUFFER_FULL_TIMEOUT} milliseconds.
+     */
+    private int sendBufferFullTimeout = DEFAULT_SEND_BUFFER_FULL_TIMEOUT;
+
+    private Pacer pacer;
+
+    private RobustChannel[] channels;
+
+    private AsyncDispatcher dispatcher;
 
     private GelfUdpChunker chunker;
 
@@ -60,6 +223,14 @@ public class GelfUdpAppender extends AbstractGelfAppender {
         this.maxChunkSize = maxChunkSize;
     }
 
+    public boolean isAutoChunkSize() {
+        return autoChunkSize;
+    }
+
+    public void setAutoChunkSize(final boolean autoChunkSize) {
+        this.autoChunkSize = autoChunkSize;
+    }
+
     public CompressionMethod getCompressionMethod() {
         return compressionMethod;
     }
@@ -76,44 +247,513 @@ public class GelfUdpAppender extends AbstractGelfAppender {
         this.messageIdSupplier = Objects.requireNonNull(messageIdSupplier, "messageIdSupplier must not be null");
     }
 
+    public boolean isConnectChannel() {
+        return connectChannel;
+    }
+
+    public void setConnectChannel(final boolean connectChannel) {
+        this.connectChannel = connectChannel;
+    }
+
+    public int getChannelStripes() {
+        return channelStripes;
+    }
+
+    public void setChannelStripes(final int channelStripes) {
+        this.channelStripes = channelStripes;
+    }
+
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+    public void setAsyncQueueSize(final int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    public int getAsyncSenderThreads() {
+        return asyncSenderThreads;
+    }
+
+    public void setAsyncSenderThreads(final int asyncSenderThreads) {
+        this.asyncSenderThreads = asyncSenderThreads;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public void setOverflowPolicy(final OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy must not be null");
+    }
+
+    public int getShutdownTimeout() {
+        return shutdownTimeout;
+    }
+
+    public void setShutdownTimeout(final int shutdownTimeout) {
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    public long getMaxBytesPerSecond() {
+        return maxBytesPerSecond;
+    }
+
+    public void setMaxBytesPerSecond(final long maxBytesPerSecond) {
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    public int getMaxPacketsPerSecond() {
+        return maxPacketsPerSecond;
+    }
+
+    public void setMaxPacketsPerSecond(final int maxPacketsPerSecond) {
+        this.maxPacketsPerSecond = maxPacketsPerSecond;
+    }
+
+    public int getPacingBurst() {
+        return pacingBurst;
+    }
+
+    public void setPacingBurst(final int pacingBurst) {
+        this.pacingBurst = pacingBurst;
+    }
+
+    public int getMaxPacingDelay() {
+        return maxPacingDelay;
+    }
+
+    public void setMaxPacingDelay(final int maxPacingDelay) {
+        this.maxPacingDelay = maxPacingDelay;
+    }
+
+    public boolean isNonBlocking() {
+        return nonBlocking;
+    }
+
+    public void setNonBlocking(final boolean nonBlocking) {
+        this.nonBlocking = nonBlocking;
+    }
+
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public void setSendBufferSize(final int sendBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+    }
+
+    public SendBufferFullPolicy getSendBufferFullPolicy() {
+        return sendBufferFullPolicy;
+    }
+
+    public void setSendBufferFullPolicy(final SendBufferFullPolicy sendBufferFullPolicy) {
+        this.sendBufferFullPolicy = Objects.requireNonNull(sendBufferFullPolicy,
+            "sendBufferFullPolicy must not be null");
+    }
+
+    public int getSendBufferFullTimeout() {
+        return sendBufferFullTimeout;
+    }
+
+    public void setSendBufferFullTimeout(final int sendBufferFullTimeout) {
+        this.sendBufferFullTimeout = sendBufferFullTimeout;
+    }
+
     @Override
     protected void startAppender() throws IOException {
-        robustChannel = new RobustChannel();
-        chunker = new GelfUdpChunker(messageIdSupplier, maxChunkSize);
-        addressResolver = new AddressResolver(getGraylogHost());
+        if (channelStripes < 1) {
+            throw new IllegalArgumentException("channelStripes must be > 0");
+        }
+
+        if (asyncQueueSize < 0) {
+            throw new IllegalArgumentException("asyncQueueSize must be >= 0");
+        }
+
+        channels = new RobustChannel[channelStripes];
+        for (int i = 0; i < channelStripes; i++) {
+            channels[i] = newChannel();
+        }
+
+        final RobustChannel firstChannel = channels[0];
+        getMetrics().registerGauge(METRIC_SEND_BUFFER_SIZE, firstChannel::getSendBufferSize);
+        if (sendBufferSize > 0 || nonBlocking) {
+            addInfo("Effective UDP send buffer size (SO_SNDBUF): " + firstChannel.getSendBufferSize() + " bytes");
+        }
+
+        addressResolver = newAddressResolver();
+        chunker = new GelfUdpChunker(messageIdSupplier, autoChunkSize ? detectChunkSize() : maxChunkSize);
         compressor = compressionMethod.getCompressor();
+
+        if (maxBytesPerSecond > 0 || maxPacketsPerSecond > 0) {
+            pacer = new Pacer(maxBytesPerSecond, maxPacketsPerSecond, pacingBurst, maxPacingDelay);
+        }
+
+        if (asyncQueueSize > 0) {
+            dispatcher = new AsyncDispatcher(getName() != null ? getName() : METRIC_PREFIX, asyncSenderThreads,
+                asyncQueueSize, overflowPolicy, getMetrics(), METRIC_PREFIX, this::sendBatch);
+            dispatcher.start();
+        }
+    }
+
+    RobustChannel newChannel() throws IOException {
+        return new RobustChannel(getMetrics(), nonBlocking, sendBufferSize);
+    }
+
+    private Integer detectChunkSize() {
+        try {
+            final int detected = ChunkSizeDetector.detect(addressResolver, getGraylogPort());
+            final int chunkSize = maxChunkSize != null ? Math.min(detected, maxChunkSize) : detected;
+            addInfo("Detected GELF chunk size: " + chunkSize + " bytes");
+            return chunkSize;
+        } catch (final IOException e) {
+            addWarn("Couldn't detect GELF chunk size - using " + (maxChunkSize != null ? maxChunkSize : "default"), e);
+            return maxChunkSize;
+        }
     }
 
     @Override
     protected void appendMessage(final byte[] binMessage) throws IOException {
-        final byte[] messageToSend = compressor.compress(binMessage);
+        // Read once - the field is cleared on stop
+        final AsyncDispatcher asyncDispatcher = dispatcher;
+        if (asyncDispatcher != null) {
+            asyncDispatcher.dispatch(binMessage);
+        } else {
+            sendMessage(binMessage);
+        }
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void sendBatch(final List<byte[]> binMessages) {
+        for (final byte[] binMessage : binMessages) {
+            try {
+                sendMessage(binMessage);
+            } catch (final Exception e) {
+                addError("Error sending GELF message", e);
+            }
+        }
+    }
 
-        final InetSocketAddress remote = new InetSocketAddress(addressResolver.resolve(),
-                getGraylogPort());
+    private void sendMessage(final byte[] binMessage) throws IOException {
+        final RobustChannel channel = selectChannel();
+        final GelfUdpChunkBuffer chunkBuffer = channel.borrowChunkBuffer();
+        try {
+            chunker.chunk(binMessage, compressor, chunkBuffer);
 
-        for (final ByteBuffer chunk : chunker.chunks(messageToSend)) {
+            if (!pace(chunkBuffer)) {
+                getMetrics().increment(METRIC_PACING_DROPPED);
+                return;
+            }
+
+            final boolean sent;
+            if (connectChannel) {
+                connect(channel);
+                sent = sendChunks(channel, chunkBuffer, null);
+            } else {
+                sent = sendChunks(channel, chunkBuffer,
+                    new InetSocketAddress(addressResolver.resolve(), getGraylogPort()));
+            }
+
+            if (!sent) {
+                getMetrics().increment(METRIC_SEND_BUFFER_FULL);
+            }
+        } catch (final IOException e) {
+            getMetrics().increment(METRIC_SEND_ERRORS);
+            throw e;
+        } finally {
+            // Don't keep buffers that have been grown for exceptionally large messages
+            if (chunkBuffer.capacity() <= chunker.getMaxRetainedBufferSize()) {
+                channel.returnChunkBuffer(chunkBuffer);
+            }
+        }
+    }
+
+    /**
+     * Connects the channel to the resolved Graylog address. Resolving for every message is only
+     * cheap with the DNS cache - without, the channel stays connected to the first resolved address.
+     */
+    private void connect(final RobustChannel channel) throws IOException {
+        if (getDnsCacheTtl() > 0 || !channel.isConnected()) {
+            channel.connect(addressResolver.resolveAll(), getGraylogPort());
+        }
+    }
+
+    /**
+     * Waits until the whole message may be sent according to the configured rates. The tokens for
+     * all chunks are reserved at once, so chunks of a message are always sent contiguously.
+     *
+     * @param chunkBuffer the chunked message to send.
+     * @return {@code true} if the message may be sent, {@code false} if it has to be dropped.
+     */
+    private boolean pace(final GelfUdpChunkBuffer chunkBuffer) {
+        final Pacer messagePacer = pacer;
+        if (messagePacer == null) {
+            return true;
+        }
+
+        final long delay = messagePacer.reserve(chunkBuffer.getWireLength(), chunkBuffer.getChunkCount());
+        if (delay > 0) {
+            getMetrics().increment(METRIC_PACED);
+            Pacer.await(delay);
+        }
+
+        return delay >= 0;
+    }
+
+    private RobustChannel selectChannel() {
+        final RobustChannel[] tmp = channels;
+        return tmp.length == 1 ? tmp[0] : tmp[(int) (Thread.currentThread().getId() % tmp.length)];
+    }
+
+    /**
+     * Sends all chunks of the buffer.
+     *
+     * @param channel the channel to use for sending.
+     * @param chunkBuffer the buffer containing the chunks to send.
+     * @param remote the target address or {@code null} if the channel is connected.
+     * @return {@code true} if all chunks have been sent, {@code false} if the message has been
+     *     dropped because the socket send buffer was full (non-blocking mode only).
+     * @throws IOException if an I/O error occurs.
+     */
+    private boolean sendChunks(final RobustChannel channel, final GelfUdpChunkBuffer chunkBuffer,
+                               final SocketAddress remote) throws IOException {
+        // The timeout applies to the whole message - set on the first full send buffer
+        long deadline = 0;
+
+        final int chunkCount = chunkBuffer.getChunkCount();
+        for (int i = 0; i < chunkCount; i++) {
+            final ByteBuffer chunk = chunkBuffer.chunk(i);
             while (chunk.hasRemaining()) {
-                robustChannel.send(chunk, remote);
+                final int sent = remote == null ? channel.write(chunk) : channel.send(chunk, remote);
+                if (sent == 0) {
+                    if (sendBufferFullPolicy != SendBufferFullPolicy.WAIT) {
+                        return false;
+                    }
+                    if (deadline == 0) {
+                        deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendBufferFullTimeout);
+                    }
+                    if (!awaitWritable(channel, deadline)) {
+                        return false;
+                    }
+                }
             }
         }
+
+        return true;
+    }
+
+    private static boolean awaitWritable(final RobustChannel channel, final long deadline) throws IOException {
+        final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        return remaining > 0 && channel.awaitWritable(remaining);
     }
 
     @Override
     protected void close() throws IOException {
-        robustChannel.close();
+        if (dispatcher != null) {
+            try {
+                dispatcher.close(shutdownTimeout);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            dispatcher = null;
+        }
+
+        // startAppender may have failed half-way
+        if (channels != null) {
+            for (final RobustChannel channel : channels) {
+                if (channel != null) {
+                    channel.close();
+                }
+            }
+        }
+
+        if (addressResolver != null) {
+            addressResolver.close();
+        }
+
+        // Created depending on the configuration - which may be changed before the next start
+        pacer = null;
     }
 
-    private static final class RobustChannel {
+    static class RobustChannel {
+
+        private final AppenderMetrics metrics;
+
+        /**
+         * Buffers used for compressing and chunking messages sent via this channel. A buffer is
+         * only used by one thread at a time and is returned to this queue afterwards.
+         */
+        private final Queue<GelfUdpChunkBuffer> chunkBuffers = new ConcurrentLinkedQueue<>();
 
         private volatile DatagramChannel channel;
         private volatile boolean stopped;
 
-        RobustChannel() throws IOException {
-            this.channel = DatagramChannel.open();
+        /**
+         * The addresses (as resolved) that were used to connect the channel.
+         */
+        private volatile InetAddress[] connectedAddresses;
+
+        /**
+         * The remote address the channel is connected to or {@code null} if not connected.
+         */
+        private volatile SocketAddress connectedRemote;
+
+        private final boolean nonBlocking;
+        private final int sendBufferSize;
+
+        /**
+         * Selector used to wait for the channel to become writable (non-blocking mode only).
+         */
+        private final Selector selector;
+
+        /**
+         * Guards the selector. Separate from the channel monitor, so waiting for a writable channel
+         * doesn't block reconnects and closing the channel.
+         */
+        private final Lock selectLock = new ReentrantLock();
+
+        RobustChannel(final AppenderMetrics metrics, final boolean nonBlocking, final int sendBufferSize)
+            throws IOException {
+
+            this.metrics = metrics;
+            this.nonBlocking = nonBlocking;
+            this.sendBufferSize = sendBufferSize;
+            this.channel = openChannel();
+            this.selector = nonBlocking ? Selector.open() : null;
+        }
+
+        private DatagramChannel openChannel() throws IOException {
+            final DatagramChannel newChannel = DatagramChannel.open();
+            if (sendBufferSize > 0) {
+                newChannel.setOption(StandardSocketOptions.SO_SNDBUF, sendBufferSize);
+            }
+            newChannel.configureBlocking(!nonBlocking);
+            return newChannel;
+        }
+
+        /**
+         * Returns the effective send buffer size - the operating system may adjust the configured
+         * value.
+         *
+         * @return the effective send buffer size or -1 if it couldn't be determined.
+         */
+        long getSendBufferSize() {
+            try {
+                return channel.getOption(StandardSocketOptions.SO_SNDBUF);
+            } catch (final IOException e) {
+                return -1;
+            }
+        }
+
+        GelfUdpChunkBuffer borrowChunkBuffer() {
+            final GelfUdpChunkBuffer chunkBuffer = chunkBuffers.poll();
+            return chunkBuffer != null ? chunkBuffer : new GelfUdpChunkBuffer();
         }
 
-        void send(final ByteBuffer src, final SocketAddress target) throws IOException {
-            getChannel().send(src, target);
+        void returnChunkBuffer(final GelfUdpChunkBuffer chunkBuffer) {
+            chunkBuffers.offer(chunkBuffer);
+        }
+
+        int send(final ByteBuffer src, final SocketAddress target) throws IOException {
+            return getChannel().send(src, target);
+        }
+
+        /**
+         * Waits until the channel is writable again. Waiting threads take turns - as the selector
+         * reports the channel as writable until the send buffer is full again, the following
+         * threads return immediately if there is enough space.
+         *
+         * @param timeout maximum time (in milliseconds) to wait.
+         * @return {@code true} if the channel is writable, {@code false} if the timeout elapsed.
+         */
+        boolean awaitWritable(final long timeout) throws IOException {
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            try {
+                if (stopped || !selectLock.tryLock(timeout, TimeUnit.MILLISECONDS)) {
+                    return false;
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+
+            try {
+                return !stopped && select(deadline);
+            } catch (final ClosedSelectorException e) {
+                // closed concurrently
+                return false;
+            } finally {
+                selectLock.unlock();
+            }
+        }
+
+        @SuppressWarnings("PMD.CloseResource")
+        private boolean select(final long deadline) throws IOException {
+            final DatagramChannel tmp = getChannel();
+            if (tmp.keyFor(selector) == null) {
+                tmp.register(selector, SelectionKey.OP_WRITE);
+            }
+
+            selector.selectedKeys().clear();
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            return (remaining > 0 ? selector.select(remaining) : selector.selectNow()) > 0;
+        }
+
+        /**
+         * Connects the channel to one of the given addresses - unless it is already connected to
+         * the same set of addresses.
+         */
+        void connect(final InetAddress[] addresses, final int port) throws IOException {
+            if (!AddressResolver.sameAddresses(addresses, connectedAddresses)) {
+                reconnect(addresses, port);
+            }
+        }
+
+        boolean isConnected() {
+            return connectedAddresses != null;
+        }
+
+        @SuppressWarnings("PMD.CloseResource")
+        private synchronized void reconnect(final InetAddress[] addresses, final int port) throws IOException {
+            if (stopped || AddressResolver.sameAddresses(addresses, connectedAddresses)) {
+                return;
+            }
+
+            final InetAddress ip = addresses[ThreadLocalRandom.current().nextInt(addresses.length)];
+            final SocketAddress remote = new InetSocketAddress(ip, port);
+
+            final DatagramChannel newChannel = openChannel();
+            newChannel.connect(remote);
+
+            final DatagramChannel oldChannel = channel;
+            channel = newChannel;
+            connectedRemote = remote;
+            connectedAddresses = addresses;
+            oldChannel.close();
+
+            metrics.increment(METRIC_RECONNECTS);
+        }
+
+        /**
+         * Writes to the connected channel.
+         */
+        @SuppressWarnings("PMD.CloseResource")
+        int write(final ByteBuffer src) throws IOException {
+            final DatagramChannel tmp = getChannel();
+            try {
+                return tmp.write(src);
+            } catch (final PortUnreachableException e) {
+                // ICMP port unreachable has been received for a previously sent datagram
+                metrics.increment(METRIC_PORT_UNREACHABLE);
+                return tmp.write(src);
+            } catch (final ClosedChannelException e) {
+                if (tmp == channel) {
+                    throw e;
+                }
+
+                // Channel has been replaced concurrently because of a reconnect
+                return getChannel().write(src);
+            }
         }
 
         @SuppressWarnings("PMD.CloseResource")
@@ -124,7 +764,10 @@ public class GelfUdpAppender extends AbstractGelfAppender {
                 synchronized (this) {
                     tmp = channel;
                     if (!tmp.isOpen() && !stopped) {
-                        tmp = DatagramChannel.open();
+                        tmp = openChannel();
+                        if (connectedRemote != null) {
+                            tmp.connect(connectedRemote);
+                        }
                         channel = tmp;
                     }
                 }
@@ -134,8 +777,12 @@ public class GelfUdpAppender extends AbstractGelfAppender {
         }
 
         synchronized void close() throws IOException {
-            channel.close();
             stopped = true;
+            channel.close();
+            if (selector != null) {
+                // Wakes up a waiting thread
+                selector.close();
+            }
         }
     }
 
@@ -0,0 +1,203 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.function.LongSupplier;
+
+/**
+ * Reusable buffer that receives the (compressed) message and lays it out as GELF chunks.
+ * <p>
+ * The buffer is divided into slots of {@code HEADER_LENGTH + payloadSize} bytes. Data written to
+ * this stream skips the header area of each slot. The static part of every chunk header (magic bytes
+ * and sequence number) is written only once when a slot is allocated. After the whole message has
+ * been written, only the message id and the sequence count are patched in place - without copying
+ * the payload again.
+ * <p>
+ * The storage is a direct {@link ByteBuffer}, so the chunks can be handed to the
+ * {@link java.nio.channels.DatagramChannel} without another copy.
+ */
+final class GelfUdpChunkBuffer extends OutputStream {
+
+    private static final int INITIAL_SLOTS = 4;
+
+    private ByteBuffer data = ByteBuffer.allocateDirect(0);
+    private ByteBuffer view = data.duplicate();
+    private int payloadSize;
+    private int slotSize;
+    private int preparedSlots;
+    private int length;
+    private int chunkCount;
+
+    /**
+     * Prepares this buffer for a new message.
+     *
+     * @param chunkPayloadSize the payload size of a single chunk.
+     */
+    void reset(final int chunkPayloadSize) {
+        if (chunkPayloadSize != payloadSize) {
+            this.payloadSize = chunkPayloadSize;
+            this.slotSize = GelfUdpChunker.HEADER_LENGTH + chunkPayloadSize;
+            this.preparedSlots = 0;
+        }
+        this.length = 0;
+        this.chunkCount = 0;
+    }
+
+    @Override
+    public void write(final int b) {
+        ensureSlot(length / payloadSize);
+        data.put(position(length), (byte) b);
+        length++;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+        int srcPos = off;
+        int remaining = len;
+        while (remaining > 0) {
+            ensureSlot(length / payloadSize);
+            final int cnt = Math.min(remaining, payloadSize - length % payloadSize);
+            data.position(position(length));
+            data.put(b, srcPos, cnt);
+            length += cnt;
+            srcPos += cnt;
+            remaining -= cnt;
+        }
+    }
+
+    private int position(final int payloadOffset) {
+        return payloadOffset / payloadSize * slotSize + GelfUdpChunker.HEADER_LENGTH + payloadOffset % payloadSize;
+    }
+
+    private void ensureSlot(final int slot) {
+        if (slot < preparedSlots) {
+            return;
+        }
+
+        if (slot >= GelfUdpChunker.MAX_CHUNKS) {
+            if (payloadSize >= GelfUdpChunker.MAX_CHUNK_PAYLOAD_SIZE) {
+                throw new IllegalArgumentException("Message to big (> " + length + " B)");
+            }
+
+            // Number of chunks would exceed maximum chunk limit - use a larger chunk size
+            // as a last resort.
+            relayout(GelfUdpChunker.MAX_CHUNK_PAYLOAD_SIZE);
+            ensureSlot(length / payloadSize);
+            return;
+        }
+
+        final int required = (slot + 1) * slotSize;
+        if (required > data.capacity()) {
+            grow(Math.max(required, Math.max(data.capacity() * 2, slotSize * INITIAL_SLOTS)));
+        }
+
+        // Write header templates of all slots that fit into the buffer
+        final int slots = Math.min(data.capacity() / slotSize, GelfUdpChunker.MAX_CHUNKS);
+        for (int i = preparedSlots; i < slots; i++) {
+            GelfUdpChunker.writeHeaderTemplate(data, i * slotSize, i);
+        }
+        preparedSlots = slots;
+    }
+
+    private void grow(final int capacity) {
+        final ByteBuffer newData = ByteBuffer.allocateDirect(capacity);
+        data.clear();
+        newData.put(data);
+        data = newData;
+        view = data.duplicate();
+    }
+
+    private void relayout(final int newPayloadSize) {
+        final byte[] payload = new byte[length];
+        for (int offset = 0; offset < length; offset += payloadSize) {
+            data.position(position(offset));
+            data.get(payload, offset, Math.min(payloadSize, length - offset));
+        }
+
+        reset(newPayloadSize);
+        write(payload, 0, payload.length);
+    }
+
+    /**
+     * Writes the chunk headers after the whole message has been written to this buffer.
+     *
+     * @param messageIdSupplier the supplier for the message id, only used if the message has to
+     *                          be split into multiple chunks.
+     */
+    void complete(final LongSupplier messageIdSupplier) {
+        chunkCount = (length + payloadSize - 1) / payloadSize;
+
+        if (chunkCount > 1) {
+            final long messageId = messageIdSupplier.getAsLong();
+            for (int i = 0; i < chunkCount; i++) {
+                GelfUdpChunker.patchHeader(data, i * slotSize, messageId, chunkCount);
+            }
+        }
+    }
+
+    int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Number of bytes of all chunks (including chunk headers) as they are sent.
+     *
+     * @return the number of bytes to send.
+     */
+    int getWireLength() {
+        return chunkCount == 1 ? length : length + chunkCount * GelfUdpChunker.HEADER_LENGTH;
+    }
+
+    /**
+     * Capacity (in bytes) of the underlying storage.
+     *
+     * @return the number of bytes allocated by this buffer.
+     */
+    int capacity() {
+        return data.capacity();
+    }
+
+    /**
+     * Returns the chunk with the given index. A message that fits into a single chunk is returned
+     * without any chunk header, as defined per GELF Format Specification.
+     * <p>
+     * The returned buffer is a view that is reused for all chunks - it has to be consumed before the
+     * next chunk is requested.
+     *
+     * @param idx the chunk index (0-based).
+     * @return the chunk, ready to be sent.
+     */
+    ByteBuffer chunk(final int idx) {
+        view.clear();
+
+        if (chunkCount == 1) {
+            view.limit(GelfUdpChunker.HEADER_LENGTH + length).position(GelfUdpChunker.HEADER_LENGTH);
+            return view;
+        }
+
+        final int start = idx * slotSize;
+        final int chunkPayloadSize = Math.min(payloadSize, length - idx * payloadSize);
+        view.limit(start + GelfUdpChunker.HEADER_LENGTH + chunkPayloadSize).position(start);
+        return view;
+    }
+
+}
@@ -19,17 +19,19 @@
 
 package de.siegmar.logbackgelf;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.util.Iterator;
-import java.util.NoSuchElementException;
 import java.util.function.LongSupplier;
 
+import de.siegmar.logbackgelf.compressor.Compressor;
+
 final class GelfUdpChunker {
 
     /**
      * Maximum number of chunks, as defined per GELF Format Specification.
      */
-    private static final int MAX_CHUNKS = 128;
+    static final int MAX_CHUNKS = 128;
 
     /**
      * GELF chunk header, as defined per GELF Format Specification.
@@ -49,10 +51,17 @@ final class GelfUdpChunker {
     /**
      * Sum of all header fields.
      */
-    private static final int HEADER_LENGTH =
+    static final int HEADER_LENGTH =
         CHUNKED_GELF_HEADER.length + MESSAGE_ID_LENGTH + SEQ_COUNT_LENGTH;
 
-    private static final int MIN_CHUNK_SIZE = HEADER_LENGTH + 1;
+    /**
+     * Offsets of the header fields that are patched per message.
+     */
+    private static final int MESSAGE_ID_OFFSET = CHUNKED_GELF_HEADER.length;
+    private static final int SEQ_NO_OFFSET = MESSAGE_ID_OFFSET + MESSAGE_ID_LENGTH;
+    private static final int SEQ_COUNT_OFFSET = SEQ_NO_OFFSET + 1;
+
+    static final int MIN_CHUNK_SIZE = HEADER_LENGTH + 1;
 
     /**
      * Default chunk size set to 508 bytes. This prevents IP packet fragmentation.
@@ -66,9 +75,9 @@ final class GelfUdpChunker {
      * <p>
      * Maximum IP packet size (65535) - IP header (up to 60) - UDP header (8) = 65467
      */
-    private static final int MAX_CHUNK_SIZE = 65467;
+    static final int MAX_CHUNK_SIZE = 65467;
 
-    private static final int MAX_CHUNK_PAYLOAD_SIZE = MAX_CHUNK_SIZE - HEADER_LENGTH;
+    static final int MAX_CHUNK_PAYLOAD_SIZE = MAX_CHUNK_SIZE - HEADER_LENGTH;
 
     /**
      * The maximum size used for the payload.
@@ -94,95 +103,70 @@ final class GelfUdpChunker {
         this.maxChunkPayloadSize = mcs - HEADER_LENGTH;
     }
 
-    private static ByteBuffer buildChunk(final long messageId, final byte[] message,
-                                         final byte chunkCount, final byte chunkNo,
-                                         final int maxChunkPayloadSize) {
-
-        final int chunkPayloadSize =
-            Math.min(maxChunkPayloadSize, message.length - chunkNo * maxChunkPayloadSize);
-
-        final ByteBuffer byteBuffer = ByteBuffer.allocate(HEADER_LENGTH + chunkPayloadSize);
-
-        // Chunked GELF magic bytes 2 bytes
-        byteBuffer.put(CHUNKED_GELF_HEADER);
-
-        // Message ID 8 bytes
-        byteBuffer.putLong(messageId);
-
-        // Sequence number 1 byte
-        byteBuffer.put(chunkNo);
-
-        // Sequence count 1 byte
-        byteBuffer.put(chunkCount);
-
-        // message
-        byteBuffer.put(message, chunkNo * maxChunkPayloadSize, chunkPayloadSize);
-
-        byteBuffer.flip();
-
-        return byteBuffer;
-    }
-
-    Iterable<? extends ByteBuffer> chunks(final byte[] message) {
-        return (Iterable<ByteBuffer>) () -> new ChunkIterator(message);
+    /**
+     * Largest buffer size that is worth keeping for reuse - enough for the maximum number of
+     * chunks using the configured chunk size.
+     *
+     * @return the maximum buffer size in bytes.
+     */
+    int getMaxRetainedBufferSize() {
+        return MAX_CHUNKS * (HEADER_LENGTH + maxChunkPayloadSize);
     }
 
-    private final class ChunkIterator implements Iterator<ByteBuffer> {
-
-        private final byte[] message;
-        private final int chunkSize;
-        private final byte chunkCount;
-        private final long messageId;
-
-        private byte chunkIdx;
-
-        private ChunkIterator(final byte[] message) {
-            this.message = message;
-
-            int localChunkSize = maxChunkPayloadSize;
-            int localChunkCount = calcChunkCount(message, localChunkSize);
-
-            if (localChunkCount > MAX_CHUNKS) {
-                // Number of chunks would exceed maximum chunk limit - use a larger chunk size
-                // as a last resort.
-
-                localChunkSize = MAX_CHUNK_PAYLOAD_SIZE;
-                localChunkCount = calcChunkCount(message, localChunkSize);
-            }
-
-            if (localChunkCount > MAX_CHUNKS) {
-                throw new IllegalArgumentException("Message to big (" + message.length + " B)");
-            }
-
-            this.chunkSize = localChunkSize;
-            this.chunkCount = (byte) localChunkCount;
+    /**
+     * Compresses the given message directly into the chunk slots of the given buffer and
+     * writes the chunk headers afterwards.
+     *
+     * @param message the message to send.
+     * @param compressor the compressor to use.
+     * @param buffer the buffer to fill with the chunks of the message.
+     * @throws IOException if the message could not be compressed.
+     */
+    void chunk(final byte[] message, final Compressor compressor, final GelfUdpChunkBuffer buffer)
+        throws IOException {
 
-            messageId = localChunkCount > 1 ? messageIdSupplier.getAsLong() : 0;
+        buffer.reset(maxChunkPayloadSize);
+        try (OutputStream out = compressor.wrap(buffer)) {
+            out.write(message);
         }
 
-        private int calcChunkCount(final byte[] msg, final int cs) {
-            return (msg.length + cs - 1) / cs;
-        }
+        buffer.complete(messageIdSupplier);
+    }
 
-        @Override
-        public boolean hasNext() {
-            return chunkIdx < chunkCount;
+    /**
+     * Writes the message independent parts of a chunk header (magic bytes and sequence number).
+     * This is done only once per chunk slot of a {@link GelfUdpChunkBuffer}.
+     *
+     * @param byteBuffer the buffer to write to.
+     * @param pos the position of the chunk header.
+     * @param chunkNo the sequence number of the chunk.
+     */
+    static void writeHeaderTemplate(final ByteBuffer byteBuffer, final int pos, final int chunkNo) {
+        // Chunked GELF magic bytes 2 bytes
+        for (int i = 0; i < CHUNKED_GELF_HEADER.length; i++) {
+            byteBuffer.put(pos + i, CHUNKED_GELF_HEADER[i]);
         }
 
-        @Override
-        public ByteBuffer next() {
-            if (!hasNext()) {
-                throw new NoSuchElementException("All " + chunkCount + " chunks consumed");
-            }
+        // Sequence number 1 byte
+        byteBuffer.put(pos + SEQ_NO_OFFSET, (byte) chunkNo);
+    }
 
-            if (chunkCount == 1) {
-                chunkIdx++;
-                return ByteBuffer.wrap(message);
-            }
+    /**
+     * Writes the message dependent parts of a chunk header (message id and sequence count).
+     *
+     * @param byteBuffer the buffer to write to.
+     * @param pos the position of the chunk header.
+     * @param messageId the message id.
+     * @param chunkCount the number of chunks of this message.
+     */
+    static void patchHeader(final ByteBuffer byteBuffer, final int pos, final long messageId,
+                            final int chunkCount) {
 
-            return buildChunk(messageId, message, chunkCount, chunkIdx++, chunkSize);
-        }
+        // Message ID 8 bytes
+        byteBuffer.putLong(pos + MESSAGE_ID_OFFSET, messageId);
 
+        // Sequence count 1 byte
+        byteBuffer.put(pos + SEQ_COUNT_OFFSET, (byte) chunkCount);
     }
 
 }
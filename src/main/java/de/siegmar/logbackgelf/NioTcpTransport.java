@@ -0,0 +1,545 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * TCP transport that multiplexes all connections on a single I/O thread using non-blocking
+ * {@link SocketChannel}s and a {@link Selector}.
+ * <p>
+ * Logging threads only queue the encoded message - every logging thread is assigned to one
+ * connection (by its thread id), so the order of its messages is preserved. The I/O thread drains
+ * the queues with gathering writes (messages and their 0 terminators) and handles connect, write
+ * timeouts and reconnects asynchronously.
+ * <p>
+ * If multiple Graylog hosts are configured, every message is queued for the connection with the
+ * lowest load instead (queued messages weighted by the load of its endpoint) - the order of
+ * messages isn't preserved in this case.
+ * <p>
+ * TLS is not supported by this transport.
+ */
+final class NioTcpTransport {
+
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final long SELECT_TIMEOUT = 100;
+
+    private final GelfTcpAppender appender;
+    private final EndpointSelector endpointSelector;
+    private final boolean balanced;
+    private final AppenderMetrics metrics;
+    private final Selector selector;
+    private final Connection[] connections;
+    private final Thread ioThread;
+
+    private final long connectTimeoutNanos;
+    private final long writeTimeoutNanos;
+    private final long reconnectDelayNanos;
+
+    private volatile boolean running = true;
+    private volatile long closeDeadline;
+
+    /**
+     * Creates a new transport.
+     *
+     * @param appender the appender (used for configuration, metrics and status messages).
+     * @param endpointSelector the selector of the Graylog servers to connect to.
+     * @param queueSize the total number of messages that can be queued.
+     * @throws IOException if the selector couldn't be opened.
+     */
+    NioTcpTransport(final GelfTcpAppender appender, final EndpointSelector endpointSelector,
+                    final int queueSize) throws IOException {
+
+        this.appender = appender;
+        this.endpointSelector = endpointSelector;
+        this.metrics = appender.getMetrics();
+
+        connectTimeoutNanos = timeoutNanos(appender.getConnectTimeout());
+        writeTimeoutNanos = timeoutNanos(appender.getWriteTimeout());
+        reconnectDelayNanos = TimeUnit.MILLISECONDS.toNanos(appender.getRetryDelay());
+
+        final int connectionCount = appender.getPoolSize();
+        if (connectionCount < 1) {
+            throw new IllegalArgumentException("poolSize must be > 0");
+        }
+
+        final int queueSizePerConnection = Math.max(1, queueSize / connectionCount);
+        connections = new Connection[connectionCount];
+        for (int i = 0; i < connectionCount; i++) {
+            connections[i] = new Connection(queueSizePerConnection);
+        }
+
+        balanced = endpointSelector.isMultiHost() && connectionCount > 1;
+
+        metrics.registerGauge(GelfTcpAppender.METRIC_QUEUE_DEPTH, this::queueDepth);
+
+        selector = Selector.open();
+        ioThread = new DaemonThreadFactory("tcp-nio").newThread(this::run);
+    }
+
+    private static long timeoutNanos(final int timeoutMillis) {
+        return timeoutMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : Long.MAX_VALUE;
+    }
+
+    void start() {
+        ioThread.start();
+    }
+
+    private long queueDepth() {
+        long depth = 0;
+        for (final Connection connection : connections) {
+            depth += connection.queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * Queues the message for the connection assigned to the current thread.
+     *
+     * @param message the message to send.
+     * @return {@code true} if the message has been queued, {@code false} if it has been dropped.
+     */
+    boolean send(final byte[] message) {
+        final Connection connection = connections.length == 1 ? connections[0] : selectConnection();
+
+        final boolean queued = running && appender.getOverflowPolicy()
+            .offer(connection.queue, message, this::isRunning, connection::signal, this::dropped);
+
+        if (queued) {
+            connection.signal();
+        } else {
+            dropped();
+        }
+
+        return queued;
+    }
+
+    private Connection selectConnection() {
+        final int preferred = (int) (Thread.currentThread().getId() % connections.length);
+        if (!balanced) {
+            return connections[preferred];
+        }
+
+        // Prefer the thread's connection if loads are equal
+        Connection best = connections[preferred];
+        double bestLoad = best.load();
+        for (int i = 1; i < connections.length; i++) {
+            final Connection candidate = connections[(preferred + i) % connections.length];
+            final double load = candidate.load();
+            if (load < bestLoad) {
+                best = candidate;
+                bestLoad = load;
+            }
+        }
+
+        return best;
+    }
+
+    /**
+     * Moves at most one connection that is connected to a removed or overloaded endpoint (see
+     * {@link EndpointSelector#shouldMove}) - it is closed as soon as it has no pending write and
+     * reconnects to the endpoint selected then.
+     *
+     * @return {@code true} if a connection is going to be moved.
+     */
+    boolean rebalance() {
+        for (final Connection connection : connections) {
+            final EndpointSelector.Endpoint endpoint = connection.endpoint;
+            if (connection.state == State.CONNECTED && endpoint != null && !connection.moving
+                && endpointSelector.shouldMove(endpoint)) {
+
+                connection.moving = true;
+                connection.signal();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isRunning() {
+        return running;
+    }
+
+    private void dropped() {
+        metrics.increment(GelfTcpAppender.METRIC_DROPPED);
+    }
+
+    /**
+     * Stops accepting new messages and waits for the I/O thread to send all queued messages.
+     *
+     * @param timeout maximum time (in milliseconds) to wait.
+     * @throws InterruptedException if the current thread has been interrupted while waiting.
+     */
+    void close(final long timeout) throws InterruptedException {
+        closeDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        running = false;
+        selector.wakeup();
+        ioThread.join(timeout + SELECT_TIMEOUT);
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void run() {
+        try {
+            while (running || !drained() && System.nanoTime() - closeDeadline < 0) {
+                selector.select(SELECT_TIMEOUT);
+                processSelectedKeys();
+                serviceConnections(System.nanoTime());
+            }
+        } catch (final IOException | RuntimeException e) {
+            appender.addError("NIO transport failed", e);
+        } finally {
+            // Don't accept messages that would never be sent
+            running = false;
+            shutdown();
+        }
+    }
+
+    private boolean drained() {
+        for (final Connection connection : connections) {
+            if (!connection.queue.isEmpty() || connection.batchLength > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Handles the ready keys. An unexpected error (e.g. a {@link java.nio.channels.CancelledKeyException})
+     * only fails the affected connection - the I/O thread keeps running for all other connections.
+     */
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void processSelectedKeys() {
+        for (final SelectionKey key : selector.selectedKeys()) {
+            final Connection connection = (Connection) key.attachment();
+
+            // The key may belong to a channel that has been closed meanwhile
+            if (key.isValid() && key == connection.key) {
+                try {
+                    process(key, connection);
+                } catch (final RuntimeException e) {
+                    connection.fail(e);
+                }
+            }
+        }
+        selector.selectedKeys().clear();
+    }
+
+    private static void process(final SelectionKey key, final Connection connection) {
+        if (key.isConnectable()) {
+            connection.finishConnect();
+        } else if (key.isReadable()) {
+            connection.read();
+        } else if (key.isWritable()) {
+            connection.write(System.nanoTime());
+        }
+    }
+
+    @SuppressWarnings("checkstyle:IllegalCatch")
+    private void serviceConnections(final long now) {
+        for (final Connection connection : connections) {
+            try {
+                connection.service(now);
+            } catch (final RuntimeException e) {
+                connection.fail(e);
+            }
+        }
+    }
+
+    private void shutdown() {
+        for (final Connection connection : connections) {
+            connection.disconnect();
+
+            // Messages that couldn't be sent in time
+            while (connection.queue.poll() != null) {
+                dropped();
+            }
+        }
+
+        try {
+            selector.close();
+        } catch (final IOException e) {
+            appender.addWarn("Couldn't close selector", e);
+        }
+    }
+
+    private enum State {
+        DISCONNECTED, CONNECTING, CONNECTED
+    }
+
+    private final class Connection {
+
+        private final RingBuffer<byte[]> queue;
+        private final AtomicBoolean signaled = new AtomicBoolean();
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(1);
+
+        /**
+         * Buffers of the current gathering write - messages interleaved with terminators.
+         */
+        private final ByteBuffer[] batch = new ByteBuffer[MAX_BATCH_SIZE * 2];
+        private final ByteBuffer[] terminators = new ByteBuffer[MAX_BATCH_SIZE];
+        private int batchOffset;
+        private int batchLength;
+        private long batchBytes;
+        private long batchStartedAt;
+
+        private SocketChannel channel;
+        private SelectionKey key;
+        private volatile EndpointSelector.Endpoint endpoint;
+        private volatile State state = State.DISCONNECTED;
+
+        /**
+         * Set by {@link #rebalance()} - the connection should be moved to another endpoint.
+         */
+        private volatile boolean moving;
+        private long connectStarted;
+        private long writeStalledSince;
+        private long reconnectAt;
+
+        Connection(final int queueSize) {
+            queue = new RingBuffer<>(queueSize);
+            for (int i = 0; i < terminators.length; i++) {
+                terminators[i] = TcpConnection.TERMINATOR.duplicate();
+            }
+        }
+
+        /**
+         * Notifies the I/O thread about new messages (at most one wakeup until it has been handled).
+         */
+        void signal() {
+            if (signaled.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * Calculates the load of this connection - called by logging threads.
+         *
+         * @return the load of this connection or {@link Double#MAX_VALUE} if it isn't connected.
+         */
+        double load() {
+            final EndpointSelector.Endpoint current = endpoint;
+            if (state != State.CONNECTED || current == null || current.isEjected()) {
+                return Double.MAX_VALUE;
+            }
+
+            return (queue.size() + 1.0) * current.load();
+        }
+
+        void service(final long now) {
+            final boolean hasNewMessages = signaled.getAndSet(false);
+
+            switch (state) {
+                case DISCONNECTED:
+                    if ((hasNewMessages || !queue.isEmpty()) && now - reconnectAt >= 0) {
+                        connect(now);
+                    }
+                    break;
+                case CONNECTING:
+                    if (now - connectStarted > connectTimeoutNanos) {
+                        fail(new IOException("Connect timed out"));
+                    }
+                    break;
+                case CONNECTED:
+                    serviceConnected(now, hasNewMessages);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown state " + state);
+            }
+        }
+
+        private void serviceConnected(final long now, final boolean hasNewMessages) {
+            if (writeStalledSince != 0 && now - writeStalledSince > writeTimeoutNanos) {
+                metrics.increment(GelfTcpAppender.METRIC_WRITE_TIMEOUTS);
+                fail(new IOException("Write timed out"));
+            } else if (moving && batchLength == 0) {
+                // Nothing in flight - the next message triggers a connect to another endpoint
+                disconnect();
+            } else if (hasNewMessages && writeStalledSince == 0) {
+                write(now);
+            }
+        }
+
+        @SuppressWarnings("PMD.CloseResource")
+        private void connect(final long now) {
+            try {
+                endpoint = endpointSelector.select();
+
+                channel = SocketChannel.open();
+                channel.configureBlocking(false);
+                connectStarted = now;
+
+                if (channel.connect(endpoint.getAddress())) {
+                    key = channel.register(selector, SelectionKey.OP_READ, this);
+                    connected();
+                } else {
+                    key = channel.register(selector, SelectionKey.OP_CONNECT, this);
+                    state = State.CONNECTING;
+                }
+            } catch (final IOException e) {
+                fail(e);
+            }
+        }
+
+        void finishConnect() {
+            try {
+                if (channel.finishConnect()) {
+                    key.interestOps(SelectionKey.OP_READ);
+                    connected();
+                }
+            } catch (final IOException e) {
+                fail(e);
+            }
+        }
+
+        private void connected() {
+            endpoint.connected();
+            state = State.CONNECTED;
+            metrics.increment(GelfTcpAppender.METRIC_RECONNECTS);
+            write(System.nanoTime());
+        }
+
+        /**
+         * Graylog doesn't send any data - reading is only used to detect a closed connection.
+         */
+        void read() {
+            try {
+                readBuffer.clear();
+                if (channel.read(readBuffer) < 0) {
+                    fail(new IOException("Connection closed by peer"));
+                }
+            } catch (final IOException e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Writes as many queued messages as possible without blocking.
+         */
+        void write(final long now) {
+            try {
+                while (batchLength > 0 || fillBatch(now)) {
+                    // The write timeout applies to the time without any progress
+                    if (channel.write(batch, batchOffset, batchLength) > 0) {
+                        writeStalledSince = 0;
+                    }
+                    while (batchLength > 0 && !batch[batchOffset].hasRemaining()) {
+                        batch[batchOffset++] = null;
+                        batchLength--;
+                    }
+
+                    if (batchLength == 0) {
+                        endpoint.writeCompleted(batchBytes, System.nanoTime() - batchStartedAt);
+                        batchBytes = 0;
+                    } else {
+                        // Socket send buffer is full - continue when the channel is writable again
+                        if (writeStalledSince == 0) {
+                            writeStalledSince = now;
+                        }
+                        key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                }
+
+                writeStalledSince = 0;
+                key.interestOps(SelectionKey.OP_READ);
+            } catch (final IOException e) {
+                fail(e);
+            }
+        }
+
+        private boolean fillBatch(final long now) {
+            batchOffset = 0;
+            batchBytes = 0;
+            int messages = 0;
+            byte[] message;
+            while (messages < MAX_BATCH_SIZE && (message = queue.poll()) != null) {
+                final ByteBuffer terminator = terminators[messages];
+                terminator.clear();
+                batch[messages * 2] = ByteBuffer.wrap(message);
+                batch[messages * 2 + 1] = terminator;
+                batchBytes += message.length + 1;
+                messages++;
+            }
+
+            batchLength = messages * 2;
+            if (messages == 0) {
+                return false;
+            }
+
+            batchStartedAt = now;
+            endpoint.writeStarted(batchBytes);
+            return true;
+        }
+
+        private void fail(final Exception e) {
+            final int lostMessages = (batchLength + 1) / 2;
+            if (lostMessages > 0) {
+                metrics.add(GelfTcpAppender.METRIC_SEND_ERRORS, lostMessages);
+            }
+
+            final EndpointSelector.Endpoint failed = endpoint;
+            if (failed != null) {
+                failed.failed();
+            }
+
+            appender.addWarn(String.format("Error sending messages via tcp://%s - reconnecting",
+                failed != null ? failed : appender.getGraylogHost() + ":" + appender.getGraylogPort()), e);
+
+            disconnect();
+            reconnectAt = System.nanoTime() + reconnectDelayNanos;
+        }
+
+        void disconnect() {
+            for (int i = batchOffset; i < batchOffset + batchLength; i++) {
+                batch[i] = null;
+            }
+            batchOffset = 0;
+            batchLength = 0;
+            writeStalledSince = 0;
+
+            if (state == State.CONNECTED) {
+                endpoint.disconnected(batchBytes);
+            }
+            batchBytes = 0;
+            endpoint = null;
+            moving = false;
+            state = State.DISCONNECTED;
+
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (final IOException e) {
+                    appender.addWarn("Couldn't close channel", e);
+                }
+                channel = null;
+                key = null;
+            }
+        }
+
+    }
+
+}
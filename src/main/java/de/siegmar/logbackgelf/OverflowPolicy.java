@@ -0,0 +1,82 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Defines what happens if a message can't be queued because the queue is full.
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Drop the message that should be queued.
+     */
+    DROP_NEWEST,
+
+    /**
+     * Drop the oldest queued message to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * Block the logging thread until the message could be queued.
+     */
+    BLOCK;
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * Inserts the element into the queue, applying this policy if the queue is full.
+     *
+     * @param queue the queue.
+     * @param element the element to insert.
+     * @param running returns {@code false} if blocking should be aborted (e.g. on shutdown).
+     * @param wakeUp called while blocking to wake up the consumer of the queue.
+     * @param dropped called for every dropped element (except the element to insert).
+     * @param <E> the type of elements held in the queue.
+     * @return {@code true} if the element has been inserted, {@code false} if it has been dropped.
+     */
+    <E> boolean offer(final RingBuffer<E> queue, final E element, final BooleanSupplier running,
+                      final Runnable wakeUp, final Runnable dropped) {
+
+        boolean queued = queue.offer(element);
+
+        if (!queued && this == DROP_OLDEST) {
+            while (!queued) {
+                if (queue.poll() != null) {
+                    dropped.run();
+                }
+                queued = queue.offer(element);
+            }
+        } else if (!queued && this == BLOCK) {
+            while (!queued && running.getAsBoolean()) {
+                wakeUp.run();
+                LockSupport.parkNanos(this, BLOCK_PARK_NANOS);
+                queued = queue.offer(element);
+            }
+        }
+
+        return queued;
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Limits the rate of sent bytes and packets. The rates are enforced by {@link TokenBucket}s.
+ */
+final class Pacer {
+
+    private final TokenBucket byteBucket;
+    private final TokenBucket packetBucket;
+    private final long maxDelayNanos;
+
+    /**
+     * Creates a new pacer.
+     *
+     * @param bytesPerSecond the maximum number of bytes per second or 0 for no limit.
+     * @param packetsPerSecond the maximum number of packets per second or 0 for no limit.
+     * @param burst the burst allowance (in milliseconds of the configured rates).
+     * @param maxDelay the maximum time (in milliseconds) to delay a message.
+     */
+    Pacer(final long bytesPerSecond, final long packetsPerSecond, final int burst, final int maxDelay) {
+        final long burstNanos = TimeUnit.MILLISECONDS.toNanos(burst);
+        byteBucket = bytesPerSecond > 0 ? new TokenBucket(bytesPerSecond, burstNanos) : null;
+        packetBucket = packetsPerSecond > 0 ? new TokenBucket(packetsPerSecond, burstNanos) : null;
+        maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelay);
+    }
+
+    /**
+     * Reserves the given number of bytes and packets at once.
+     *
+     * @param bytes the number of bytes to send.
+     * @param packets the number of packets to send.
+     * @return the time (in nanoseconds) to wait before sending or -1 if sending would have to be
+     *     delayed for longer than the maximum delay.
+     */
+    long reserve(final int bytes, final int packets) {
+        final long byteDelay = byteBucket != null ? byteBucket.reserve(bytes, maxDelayNanos) : 0;
+        if (byteDelay < 0 || packetBucket == null) {
+            return byteDelay;
+        }
+
+        final long packetDelay = packetBucket.reserve(packets, maxDelayNanos);
+        if (packetDelay < 0) {
+            if (byteBucket != null) {
+                byteBucket.cancel(bytes);
+            }
+            return -1;
+        }
+
+        return Math.max(byteDelay, packetDelay);
+    }
+
+    /**
+     * Waits for the given time. Returns early if the current thread gets interrupted.
+     *
+     * @param delayNanos the time (in nanoseconds) to wait.
+     */
+    static void await(final long delayNanos) {
+        final long deadline = System.nanoTime() + delayNanos;
+        long remaining = delayNanos;
+        while (remaining > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+}
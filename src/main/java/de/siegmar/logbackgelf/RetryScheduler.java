@@ -0,0 +1,179 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Retries failed messages in the background, so the logging thread never sleeps between retry
+ * attempts.
+ * <p>
+ * The delay between attempts grows exponentially (starting with the retry delay, up to the
+ * maximum retry delay) and is randomized, so many appenders don't retry in lockstep after an
+ * outage. The memory held by messages waiting for a retry is bounded - messages that don't fit
+ * are rejected.
+ */
+final class RetryScheduler {
+
+    private static final int MAX_SHIFT = 30;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final int maxRetries;
+    private final long retryDelay;
+    private final long maxRetryDelay;
+    private final long maxBufferSize;
+    private final Sender sender;
+    private final Consumer<Exception> failureHandler;
+    private final AtomicLong bufferedBytes = new AtomicLong();
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param name the name used for the retry thread.
+     * @param maxRetries the number of retries per message (minimum 1).
+     * @param retryDelay the delay (in milliseconds) before the first retry.
+     * @param maxRetryDelay the maximum delay (in milliseconds) between two retries.
+     * @param maxBufferSize the maximum number of bytes of all messages waiting for a retry.
+     * @param sender the sender of the messages, called by the retry thread.
+     * @param failureHandler the handler for messages that couldn't be sent after all retries.
+     */
+    RetryScheduler(final String name, final int maxRetries, final long retryDelay, final long maxRetryDelay,
+                   final long maxBufferSize, final Sender sender, final Consumer<Exception> failureHandler) {
+
+        if (maxRetries < 1) {
+            throw new IllegalArgumentException("maxRetries must be > 0");
+        }
+
+        this.maxRetries = maxRetries;
+        this.retryDelay = retryDelay;
+        this.maxRetryDelay = Math.max(retryDelay, maxRetryDelay);
+        this.maxBufferSize = maxBufferSize;
+        this.sender = sender;
+        this.failureHandler = failureHandler;
+
+        executor = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory(name + "-retry"));
+        executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Schedules the retry of a message whose first attempt failed.
+     *
+     * @param message the message to retry.
+     * @return {@code true} if the retry has been scheduled, {@code false} if the retry buffer is
+     *     full or the scheduler has been closed.
+     */
+    boolean schedule(final byte[] message) {
+        if (bufferedBytes.addAndGet(message.length) > maxBufferSize) {
+            bufferedBytes.addAndGet(-message.length);
+            return false;
+        }
+
+        if (!schedule(new Retry(message))) {
+            bufferedBytes.addAndGet(-message.length);
+            return false;
+        }
+
+        return true;
+    }
+
+    private boolean schedule(final Retry retry) {
+        try {
+            executor.schedule(retry, backoff(retryDelay, maxRetryDelay, retry.attempt + 1), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (final RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Calculates the randomized delay of the given retry attempt. The delay is between half and
+     * all of {@code retryDelay * 2^(attempt - 1)}, limited by {@code maxRetryDelay}.
+     *
+     * @param retryDelay the delay (in milliseconds) of the first retry.
+     * @param maxRetryDelay the maximum delay (in milliseconds).
+     * @param attempt the retry attempt (1-based).
+     * @return the delay in milliseconds.
+     */
+    static long backoff(final long retryDelay, final long maxRetryDelay, final int attempt) {
+        final int shift = Math.min(attempt - 1, MAX_SHIFT);
+        final long delay = retryDelay > (maxRetryDelay >> shift) ? maxRetryDelay : retryDelay << shift;
+        final long half = delay / 2;
+        return delay - half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    /**
+     * Number of bytes of all messages waiting for a retry.
+     *
+     * @return the number of buffered bytes.
+     */
+    long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
+    /**
+     * Stops the scheduler. Messages waiting for a retry are discarded.
+     *
+     * @return the number of discarded messages.
+     */
+    int close() {
+        final int discarded = executor.shutdownNow().size();
+        bufferedBytes.set(0);
+        return discarded;
+    }
+
+    @FunctionalInterface
+    interface Sender {
+
+        void send(byte[] message) throws Exception;
+
+    }
+
+    private final class Retry implements Runnable {
+
+        private final byte[] message;
+        private int attempt;
+
+        Retry(final byte[] message) {
+            this.message = message;
+        }
+
+        @SuppressWarnings("checkstyle:IllegalCatch")
+        @Override
+        public void run() {
+            attempt++;
+            try {
+                sender.send(message);
+                bufferedBytes.addAndGet(-message.length);
+            } catch (final Exception e) {
+                if (attempt >= maxRetries || !schedule(this)) {
+                    bufferedBytes.addAndGet(-message.length);
+                    failureHandler.accept(e);
+                }
+            }
+        }
+
+    }
+
+}
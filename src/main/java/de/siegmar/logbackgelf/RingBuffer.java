@@ -0,0 +1,134 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free ring buffer for multiple producers and consumers. All memory is allocated
+ * up front - offering and polling elements doesn't allocate.
+ * <p>
+ * The implementation is based on the bounded MPMC queue by Dmitry Vyukov: every slot carries a
+ * sequence number that tells producers and consumers whether the slot is ready for them.
+ *
+ * @param <E> the type of elements held in this buffer.
+ */
+final class RingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Creates a new ring buffer.
+     *
+     * @param minCapacity the minimum capacity - rounded up to the next power of two.
+     */
+    RingBuffer(final int minCapacity) {
+        if (minCapacity < 1) {
+            throw new IllegalArgumentException("capacity must be > 0");
+        }
+
+        final int capacity = minCapacity == 1 ? 1 : Integer.highestOneBit(minCapacity - 1) << 1;
+        mask = capacity - 1;
+        elements = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Inserts the element if the buffer isn't full.
+     *
+     * @param element the element to insert.
+     * @return {@code true} if the element was inserted, {@code false} if the buffer is full.
+     */
+    boolean offer(final E element) {
+        long pos = tail.get();
+        while (true) {
+            final int idx = (int) pos & mask;
+            final long diff = sequences.get(idx) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements.lazySet(idx, element);
+                    sequences.set(idx, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                // full
+                return false;
+            } else {
+                pos = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Retrieves and removes the oldest element.
+     *
+     * @return the oldest element or {@code null} if the buffer is empty.
+     */
+    E poll() {
+        long pos = head.get();
+        while (true) {
+            final int idx = (int) pos & mask;
+            final long diff = sequences.get(idx) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    final E element = elements.get(idx);
+                    elements.lazySet(idx, null);
+                    sequences.set(idx, pos + mask + 1);
+                    return element;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                // empty
+                return null;
+            } else {
+                pos = head.get();
+            }
+        }
+    }
+
+    /**
+     * Returns the (approximate) number of elements in this buffer.
+     *
+     * @return the number of elements.
+     */
+    int size() {
+        final long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+}
@@ -0,0 +1,330 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Calculates gap statistics (lost, duplicate and reordered messages) from a captured stream of
+ * GELF messages that contain the {@code _seq} and {@code _sender_id} fields (see the
+ * {@code sequenceNumbers} option of the appenders).
+ * <p>
+ * This class is not thread-safe. It keeps one bit per sequence number and sender - for a sliding
+ * window of (at least) the {@value #WINDOW_SIZE} most recent sequence numbers. Messages that are
+ * received after the window has moved past them can't be checked for duplicates; they are counted
+ * as received and reordered only.
+ */
+public class SequenceGapStatistics {
+
+    /**
+     * Minimum number of recent sequence numbers tracked per sender.
+     */
+    public static final int WINDOW_SIZE = 1 << 20;
+
+    /**
+     * Maximum number of sequence numbers tracked per sender (256 KiB of memory). The window is
+     * moved by at least {@link #WINDOW_SIZE} at once, so bits are rarely copied.
+     */
+    private static final int WINDOW_CAPACITY = 2 * WINDOW_SIZE;
+
+    /**
+     * The fields as added by the sequence stamper - at the end of the JSON object.
+     */
+    private static final Pattern SEQUENCE_FIELDS = Pattern.compile(
+        "[{,]\\s*\"_sender_id\"\\s*:\\s*\"(" + SequenceStamper.SENDER_ID_CHARS + ")\"\\s*,"
+            + "\\s*\"_seq\"\\s*:\\s*(\\d{1,19})\\s*}\\s*$");
+
+    private final Map<String, SenderStatistics> senders = new TreeMap<>();
+
+    /**
+     * Adds a received GELF message (JSON).
+     *
+     * @param message the received message.
+     * @return {@code true} if the message contained a valid sequence number, {@code false}
+     *     otherwise.
+     */
+    public boolean add(final String message) {
+        final Matcher matcher = SEQUENCE_FIELDS.matcher(message);
+        if (!matcher.find()) {
+            return false;
+        }
+
+        final long seq;
+        try {
+            seq = Long.parseLong(matcher.group(2));
+        } catch (final NumberFormatException e) {
+            // exceeds the range of long
+            return false;
+        }
+
+        add(matcher.group(1), seq);
+        return true;
+    }
+
+    /**
+     * Adds a received sequence number.
+     *
+     * @param senderId the sender id.
+     * @param seq the sequence number.
+     * @throws IllegalArgumentException if the sequence number is negative.
+     */
+    public void add(final String senderId, final long seq) {
+        if (seq < 0) {
+            throw new IllegalArgumentException("seq must be >= 0");
+        }
+
+        senders.computeIfAbsent(senderId, k -> new SenderStatistics()).add(seq);
+    }
+
+    /**
+     * Returns the statistics per sender.
+     *
+     * @return an unmodifiable map of sender ids and their statistics.
+     */
+    public Map<String, SenderStatistics> getSenders() {
+        return Collections.unmodifiableMap(senders);
+    }
+
+    /**
+     * Statistics of a single sender.
+     */
+    public static final class SenderStatistics {
+
+        /**
+         * Received sequence numbers - bit 0 represents {@link #windowBase}.
+         */
+        private BitSet seen = new BitSet();
+        private long windowBase = -1;
+        private long base = -1;
+        private long last = -1;
+        private long received;
+        private long duplicates;
+        private long reordered;
+
+        /**
+         * Number of distinct sequence numbers that have been received before the window moved.
+         */
+        private long retiredSeen;
+
+        /**
+         * Number of gaps before the window.
+         */
+        private long retiredGaps;
+
+        /**
+         * If the sequence number right before the window is missing (a gap may continue).
+         */
+        private boolean retiredInGap;
+
+        void add(final long seq) {
+            received++;
+
+            if (base < 0) {
+                base = seq;
+                windowBase = seq;
+            } else if (seq < windowBase) {
+                if (!rebase(seq)) {
+                    // Too old to be tracked
+                    reordered++;
+                    return;
+                }
+            } else if (seq - windowBase >= WINDOW_CAPACITY) {
+                slide(seq - WINDOW_SIZE + 1);
+            }
+
+            final int idx = (int) (seq - windowBase);
+            if (seen.get(idx)) {
+                duplicates++;
+                return;
+            }
+            seen.set(idx);
+
+            if (seq < last) {
+                reordered++;
+            }
+            last = Math.max(last, seq);
+        }
+
+        /**
+         * Moves the window back to a new lowest sequence number - if the window hasn't moved
+         * forward yet and the whole range still fits into it.
+         */
+        private boolean rebase(final long newBase) {
+            if (windowBase != base || last - newBase >= WINDOW_CAPACITY) {
+                return false;
+            }
+
+            final int shift = (int) (windowBase - newBase);
+            final BitSet shifted = new BitSet(seen.length() + shift);
+            for (int i = seen.nextSetBit(0); i >= 0; i = seen.nextSetBit(i + 1)) {
+                shifted.set(i + shift);
+            }
+            seen = shifted;
+            windowBase = newBase;
+            base = newBase;
+            return true;
+        }
+
+        /**
+         * Moves the window forward. The statistics of the sequence numbers that leave the window
+         * are kept as counters.
+         */
+        private void slide(final long newWindowBase) {
+            final long distance = newWindowBase - windowBase;
+            final int retiredBits = (int) Math.min(distance, WINDOW_CAPACITY);
+
+            retiredSeen += seen.get(0, retiredBits).cardinality();
+            retiredGaps += countGaps(seen, retiredBits, retiredInGap);
+
+            final boolean lastRetiredMissing = !seen.get(retiredBits - 1);
+            if (distance > retiredBits) {
+                // Skipped sequence numbers that were never part of the window - all missing
+                if (!lastRetiredMissing) {
+                    retiredGaps++;
+                }
+                retiredInGap = true;
+            } else {
+                retiredInGap = lastRetiredMissing;
+            }
+
+            seen = seen.get(retiredBits, Math.max(retiredBits, seen.length()));
+            windowBase = newWindowBase;
+        }
+
+        /**
+         * Counts the ranges of clear bits below the given length.
+         */
+        private static int countGaps(final BitSet bits, final int length, final boolean continued) {
+            int gaps = 0;
+            int i = bits.nextClearBit(0);
+            while (i < length) {
+                if (i > 0 || !continued) {
+                    gaps++;
+                }
+                final int next = bits.nextSetBit(i);
+                i = next < 0 ? length : bits.nextClearBit(next);
+            }
+            return gaps;
+        }
+
+        /**
+         * Lowest received sequence number.
+         *
+         * @return the lowest sequence number or -1 if nothing has been received.
+         */
+        public long getFirstSeq() {
+            return base;
+        }
+
+        /**
+         * Highest received sequence number.
+         *
+         * @return the highest sequence number or -1 if nothing has been received.
+         */
+        public long getLastSeq() {
+            return last;
+        }
+
+        /**
+         * Number of received messages (including duplicates).
+         *
+         * @return the number of received messages.
+         */
+        public long getReceived() {
+            return received;
+        }
+
+        /**
+         * Number of messages that have been received more than once.
+         *
+         * @return the number of duplicates.
+         */
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        /**
+         * Number of messages that have been received after a message with a higher sequence number.
+         *
+         * @return the number of reordered messages.
+         */
+        public long getReordered() {
+            return reordered;
+        }
+
+        /**
+         * Number of messages expected between the lowest and highest received sequence number.
+         *
+         * @return the number of expected messages.
+         */
+        public long getExpected() {
+            return base < 0 ? 0 : last - base + 1;
+        }
+
+        /**
+         * Number of missing messages between the lowest and highest received sequence number.
+         *
+         * @return the number of missing messages.
+         */
+        public long getMissing() {
+            return getExpected() - retiredSeen - seen.cardinality();
+        }
+
+        /**
+         * Number of gaps - consecutive ranges of missing messages.
+         *
+         * @return the number of gaps.
+         */
+        public long getGaps() {
+            return retiredGaps + countGaps(seen, seen.length(), retiredInGap);
+        }
+
+        /**
+         * Ratio of missing messages to expected messages.
+         *
+         * @return the loss rate (0.0 - 1.0).
+         */
+        public double getLossRate() {
+            final long expected = getExpected();
+            return expected == 0 ? 0 : (double) getMissing() / expected;
+        }
+
+        @Override
+        public String toString() {
+            return "SenderStatistics{"
+                + "firstSeq=" + base
+                + ", lastSeq=" + last
+                + ", received=" + received
+                + ", missing=" + getMissing()
+                + ", gaps=" + getGaps()
+                + ", duplicates=" + duplicates
+                + ", reordered=" + reordered
+                + ", lossRate=" + getLossRate()
+                + '}';
+        }
+
+    }
+
+}
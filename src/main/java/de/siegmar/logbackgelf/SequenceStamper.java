@@ -0,0 +1,159 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Adds a sequence number ({@code _seq}) and a sender id ({@code _sender_id}) to already encoded
+ * GELF messages. The sequence number is assigned atomically per appender instance, so the number of
+ * lost messages can be calculated by the receiver (see {@link SequenceGapStatistics}).
+ * <p>
+ * The fields are inserted in front of the closing brace of the encoded JSON object - the message
+ * is not parsed.
+ */
+final class SequenceStamper {
+
+    /**
+     * Allowed characters of a sender id - no escaping is required when it is added to the message.
+     */
+    static final String SENDER_ID_CHARS = "[A-Za-z0-9_.:-]+";
+
+    private static final Pattern SENDER_ID_PATTERN = Pattern.compile(SENDER_ID_CHARS);
+    private static final SequenceStamper DISABLED = new SequenceStamper();
+    private static final int RADIX = 10;
+    private static final int MAX_LONG_DIGITS = 19;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Pre-encoded bytes inserted in front of the sequence number (including the leading comma,
+     * that is omitted for empty objects) or {@code null} if disabled.
+     */
+    private final byte[] prefix;
+
+    private SequenceStamper() {
+        prefix = null;
+    }
+
+    /**
+     * Creates a new stamper.
+     *
+     * @param senderId the sender id or {@code null} to generate a random one.
+     * @throws IllegalArgumentException if the sender id contains unsupported characters.
+     */
+    SequenceStamper(final String senderId) {
+        final String sid = senderId != null ? senderId : randomSenderId();
+        if (!SENDER_ID_PATTERN.matcher(sid).matches()) {
+            throw new IllegalArgumentException(
+                "Invalid senderId - must only contain letters, digits, '_', '.', ':' or '-'");
+        }
+
+        prefix = (",\"_sender_id\":\"" + sid + "\",\"_seq\":").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Creates a stamper for the appender configuration.
+     *
+     * @param sequenceNumbers if {@code false}, a stamper that returns all messages unchanged is
+     *                        returned.
+     * @param senderId the sender id or {@code null} to generate a random one.
+     * @return the stamper.
+     * @throws IllegalArgumentException if the sender id contains unsupported characters.
+     */
+    static SequenceStamper create(final boolean sequenceNumbers, final String senderId) {
+        return sequenceNumbers ? new SequenceStamper(senderId) : DISABLED;
+    }
+
+    private static String randomSenderId() {
+        return Long.toHexString(new SecureRandom().nextLong());
+    }
+
+    /**
+     * Inserts the fields into the given message. Messages that don't end with a JSON object
+     * (e.g. from a custom encoder) are returned unchanged.
+     *
+     * @param message the encoded message.
+     * @return a new array containing the message with the added fields.
+     */
+    byte[] stamp(final byte[] message) {
+        if (prefix == null) {
+            return message;
+        }
+
+        final int closingBrace = findClosingBrace(message);
+        if (closingBrace < 1) {
+            return message;
+        }
+
+        // No separating comma if the object has no fields yet
+        final int skip = isEmptyObject(message, closingBrace) ? 1 : 0;
+        final int prefixLength = prefix.length - skip;
+
+        final long seq = sequence.getAndIncrement();
+        final int digits = digits(seq);
+
+        final byte[] result = new byte[message.length + prefixLength + digits];
+        System.arraycopy(message, 0, result, 0, closingBrace);
+        System.arraycopy(prefix, skip, result, closingBrace, prefixLength);
+
+        long value = seq;
+        for (int i = closingBrace + prefixLength + digits - 1; i >= closingBrace + prefixLength; i--) {
+            result[i] = (byte) ('0' + value % RADIX);
+            value /= RADIX;
+        }
+
+        System.arraycopy(message, closingBrace, result, closingBrace + prefixLength + digits,
+            message.length - closingBrace);
+
+        return result;
+    }
+
+    private static boolean isEmptyObject(final byte[] message, final int closingBrace) {
+        int i = closingBrace - 1;
+        while (i >= 0 && Character.isWhitespace(message[i])) {
+            i--;
+        }
+        return i >= 0 && message[i] == '{';
+    }
+
+    private static int findClosingBrace(final byte[] message) {
+        int i = message.length - 1;
+        while (i >= 0 && Character.isWhitespace(message[i])) {
+            i--;
+        }
+        return i >= 0 && message[i] == '}' ? i : -1;
+    }
+
+    private static int digits(final long value) {
+        long limit = RADIX;
+        for (int i = 1; i < MAX_LONG_DIGITS; i++) {
+            if (value < limit) {
+                return i;
+            }
+            limit *= RADIX;
+        }
+        return MAX_LONG_DIGITS;
+    }
+
+}
@@ -19,64 +19,487 @@
 
 package de.siegmar.logbackgelf;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.net.InetAddress;
-import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import javax.net.SocketFactory;
+import javax.net.ssl.SSLSocket;
 
 import ch.qos.logback.core.util.CloseUtil;
 import de.siegmar.logbackgelf.pool.BasePooledObject;
 
 public class TcpConnection extends BasePooledObject {
 
-    private final AddressResolver addressResolver;
-    private final SocketFactory socketFactory;
-    private final int port;
+    /**
+     * Time (in milliseconds) to wait for data (or EOF) when checking if a connection without
+     * channel is alive.
+     */
+    private static final int LIVENESS_PROBE_TIMEOUT = 1;
+
+    /**
+     * The 0 terminator required by GELF via TCP - shared by all gathering writes (as duplicates
+     * with their own position).
+     */
+    static final ByteBuffer TERMINATOR = ByteBuffer.wrap(new byte[1]).asReadOnlyBuffer();
+
+    /**
+     * Size (in bytes) of the buffer that coalesces a message and its terminator for sockets without
+     * channel - the maximum size of a TLS record.
+     */
+    private static final int COALESCE_BUFFER_SIZE = 16 * 1024;
+
+    private final Function<String, SocketFactory> socketFactory;
+    private final EndpointSelector endpointSelector;
     private final int connectTimeout;
     private final int socketTimeout;
+    private final int writeBufferSize;
+    private final long livenessCheckIdleNanos;
 
+    private volatile Socket socket;
     private volatile OutputStream outputStream;
+    private volatile EndpointSelector.Endpoint endpoint;
+
+    /**
+     * The channel of the socket for gathering writes or {@code null} if the socket isn't backed by
+     * a channel (e.g. TLS) or writes are buffered.
+     */
+    private SocketChannel channel;
+
+    /**
+     * Buffers of a single message gathering write - the message and its terminator.
+     */
+    private final ByteBuffer[] messageBuffers = {null, TERMINATOR.duplicate()};
+
+    private final ByteBuffer probeBuffer = ByteBuffer.allocate(1);
+
+    /**
+     * Time (as of {@link System#nanoTime()}) the current write has been started or 0 if no write is
+     * in progress. Read by the write watchdog.
+     */
+    private volatile long writeStartedAt;
+
+    private volatile boolean writeAborted;
+
+    /**
+     * Time (as of {@link System#nanoTime()}) of the first write that hasn't been flushed yet or 0
+     * if nothing is pending.
+     */
+    private long pendingSince;
+
+    /**
+     * Time (as of {@link System#nanoTime()}) of the last write or successful liveness check.
+     */
+    private long lastActivity;
+
+    /**
+     * Number of bytes written but not yet flushed.
+     */
+    private long unflushedBytes;
 
-    TcpConnection(final SocketFactory socketFactory,
-                  final AddressResolver addressResolver, final int port, final int connectTimeout,
-                  final int socketTimeout) {
+    /**
+     * Number of messages written but not yet flushed.
+     */
+    private int unflushedMessages;
+
+    /**
+     * Number of buffered messages lost by the last failed background flush.
+     */
+    private int lostMessages;
+
+    /**
+     * Whether a background flush has failed - the connection must not be used anymore.
+     */
+    private boolean broken;
+
+    /**
+     * Whether this connection has been released from its endpoint (on close).
+     */
+    private boolean released;
+
+    /**
+     * Creates a new connection.
+     *
+     * @param socketFactory the factory for creating the socket - by the hostname of the selected
+     *                      endpoint.
+     * @param endpointSelector the selector of the Graylog server to connect to.
+     * @param connectTimeout the connect timeout (in milliseconds).
+     * @param socketTimeout the socket timeout (in milliseconds).
+     * @param writeBufferSize the size (in bytes) of the buffer that coalesces writes or 0 to
+     *                        flush every message immediately.
+     * @param livenessCheckIdleTime the time (in milliseconds) without activity after that the
+     *                              connection is checked before it is used or 0 to disable checks.
+     */
+    TcpConnection(final Function<String, SocketFactory> socketFactory, final EndpointSelector endpointSelector,
+                  final int connectTimeout, final int socketTimeout, final int writeBufferSize,
+                  final int livenessCheckIdleTime) {
 
-        this.addressResolver = addressResolver;
         this.socketFactory = socketFactory;
-        this.port = port;
+        this.endpointSelector = endpointSelector;
         this.connectTimeout = connectTimeout;
         this.socketTimeout = socketTimeout;
+        this.writeBufferSize = writeBufferSize;
+        this.livenessCheckIdleNanos = livenessCheckIdleTime <= 0
+            ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(livenessCheckIdleTime);
+    }
+
+    /**
+     * Returns the endpoint this connection is connected to.
+     *
+     * @return the endpoint or {@code null} if not connected yet.
+     */
+    EndpointSelector.Endpoint getEndpoint() {
+        return endpoint;
     }
 
     public void write(final byte[] messageToSend) throws IOException {
+        write(messageToSend, true);
+    }
+
+    /**
+     * Writes the message. In buffered mode, the message is only flushed if requested or if the
+     * buffer is full.
+     *
+     * @param messageToSend the message to send.
+     * @param flush if {@code true}, the message (and all previously buffered messages) are
+     *              flushed immediately.
+     * @throws IOException if an I/O error occurs.
+     */
+    public synchronized void write(final byte[] messageToSend, final boolean flush) throws IOException {
+        ensureConnected();
+
+        final long bytes = messageToSend.length + 1L;
+        unflushedMessages++;
+        timed(bytes, () -> {
+            if (channel != null) {
+                messageBuffers[0] = ByteBuffer.wrap(messageToSend);
+                messageBuffers[1].clear();
+                try {
+                    gather(messageBuffers, bytes);
+                } finally {
+                    messageBuffers[0] = null;
+                }
+            } else {
+                outputStream.write(messageToSend);
+
+                // GELF via TCP requires 0 termination
+                outputStream.write(0);
+            }
+
+            written(flush);
+        });
+    }
+
+    /**
+     * Writes multiple messages at once. Without write buffer, all messages are sent with a single
+     * gathering write (sockets with channel) or coalesced into as few writes as possible.
+     *
+     * @param messagesToSend the messages to send.
+     * @param flush if {@code true}, the messages (and all previously buffered messages) are
+     *              flushed immediately.
+     * @throws IOException if an I/O error occurs.
+     */
+    public synchronized void write(final List<byte[]> messagesToSend, final boolean flush) throws IOException {
+        ensureConnected();
+
+        final long bytes = totalLength(messagesToSend);
+        unflushedMessages += messagesToSend.size();
+        timed(bytes, () -> {
+            if (channel != null) {
+                gather(interleave(messagesToSend), bytes);
+            } else {
+                for (final byte[] messageToSend : messagesToSend) {
+                    outputStream.write(messageToSend);
+                    outputStream.write(0);
+                }
+            }
+
+            written(flush);
+        });
+    }
+
+    private void ensureConnected() throws IOException {
+        if (broken) {
+            // Buffered writes would seem to succeed although the messages are lost
+            throw new IOException("Connection broken by a failed flush");
+        }
+
         if (outputStream == null) {
             connect();
         }
+    }
+
+    private static long totalLength(final List<byte[]> messages) {
+        long length = 0;
+        for (final byte[] message : messages) {
+            length += message.length + 1;
+        }
+        return length;
+    }
+
+    /**
+     * Executes the given write action - marked as in progress for the write watchdog.
+     *
+     * @param bytes the number of bytes written by the action.
+     * @param action the write action.
+     */
+    private void timed(final long bytes, final WriteAction action) throws IOException {
+        writeStartedAt = System.nanoTime();
+        unflushedBytes += bytes;
+        endpoint.writeStarted(bytes);
+        try {
+            action.run();
+        } catch (final IOException e) {
+            endpoint.writeFailed(unflushedBytes);
+            unflushedBytes = 0;
+            unflushedMessages = 0;
 
-        outputStream.write(messageToSend);
+            if (writeAborted) {
+                throw (IOException) new SocketTimeoutException("Write timed out").initCause(e);
+            }
+            throw e;
+        } finally {
+            writeStartedAt = 0;
+            lastActivity = System.nanoTime();
+        }
+    }
 
-        // GELF via TCP requires 0 termination
-        outputStream.write(0);
+    /**
+     * Checks if the connection has been closed by the peer (or is broken otherwise) - if it has
+     * been idle for longer than the liveness check idle time. As Graylog never sends any data, a
+     * non-blocking read reveals an EOF (or a reset) without consuming any message data. Otherwise,
+     * the first write into a half-open connection could succeed and the message would silently get
+     * lost.
+     *
+     * @return {@code false} if the connection is known to be dead.
+     */
+    @Override
+    protected synchronized boolean isAlive() {
+        if (broken) {
+            return false;
+        }
+
+        final Socket current = socket;
+        if (current == null || System.nanoTime() - lastActivity < livenessCheckIdleNanos) {
+            return true;
+        }
+
+        final boolean alive = probe(current);
+        if (alive) {
+            lastActivity = System.nanoTime();
+        }
+        return alive;
+    }
 
+    private boolean probe(final Socket current) {
+        try {
+            final SocketChannel socketChannel = current.getChannel();
+            return socketChannel != null ? probe(socketChannel) : probeWithTimeout(current);
+        } catch (final IOException e) {
+            return false;
+        }
+    }
+
+    private boolean probe(final SocketChannel socketChannel) throws IOException {
+        socketChannel.configureBlocking(false);
+        try {
+            // Nothing to read (0) - the connection is open
+            probeBuffer.clear();
+            return socketChannel.read(probeBuffer) >= 0;
+        } finally {
+            socketChannel.configureBlocking(true);
+        }
+    }
+
+    /**
+     * Sockets without channel (e.g. TLS sockets) don't support non-blocking reads - they are read
+     * with a very short timeout instead.
+     */
+    private boolean probeWithTimeout(final Socket current) throws IOException {
+        current.setSoTimeout(LIVENESS_PROBE_TIMEOUT);
+        try {
+            return current.getInputStream().read() >= 0;
+        } catch (final SocketTimeoutException e) {
+            // Nothing to read - the connection is open
+            return true;
+        } finally {
+            current.setSoTimeout(socketTimeout);
+        }
+    }
+
+    /**
+     * Aborts the current write if it is in progress for longer than the given timeout. The socket
+     * is closed, so the blocked write fails and the connection is replaced. Called by the write
+     * watchdog (without holding the lock of this connection).
+     *
+     * @param timeoutNanos the write timeout (in nanoseconds).
+     * @return {@code true} if a stalled write has been aborted.
+     */
+    boolean abortStalledWrite(final long timeoutNanos) {
+        final long startedAt = writeStartedAt;
+        final Socket currentSocket = socket;
+        if (startedAt == 0 || currentSocket == null || System.nanoTime() - startedAt <= timeoutNanos) {
+            return false;
+        }
+
+        writeAborted = true;
+        CloseUtil.closeQuietly(currentSocket);
+        return true;
+    }
+
+    /**
+     * Writes the given buffers to the channel. A blocking channel usually writes all buffers at
+     * once - unless the operating system limits the number of buffers per write.
+     *
+     * @param buffers the buffers to write.
+     * @param bytes the total number of bytes remaining in the buffers.
+     * @throws IOException if an I/O error occurs.
+     */
+    private void gather(final ByteBuffer[] buffers, final long bytes) throws IOException {
+        long remaining = bytes;
+        while (remaining > 0) {
+            remaining -= channel.write(buffers);
+        }
+    }
+
+    private static ByteBuffer[] interleave(final List<byte[]> messages) {
+        final ByteBuffer[] buffers = new ByteBuffer[messages.size() * 2];
+        int idx = 0;
+        for (final byte[] message : messages) {
+            buffers[idx] = ByteBuffer.wrap(message);
+            buffers[idx + 1] = TERMINATOR.duplicate();
+            idx += 2;
+        }
+        return buffers;
+    }
+
+    private void written(final boolean flush) throws IOException {
+        if (flush || writeBufferSize == 0) {
+            flush();
+        } else if (pendingSince == 0) {
+            pendingSince = System.nanoTime();
+        }
+    }
+
+    /**
+     * Flushes buffered messages if the oldest one has been buffered for at least the given time.
+     * If the flush fails, the buffered messages are lost (see {@link #getLostMessages()}) and the
+     * connection is closed - it is replaced by the pool before it is used again.
+     *
+     * @param lingerNanos the linger time (in nanoseconds).
+     * @throws IOException if an I/O error occurs.
+     */
+    synchronized void flushIfLingered(final long lingerNanos) throws IOException {
+        if (pendingSince != 0 && System.nanoTime() - pendingSince >= lingerNanos) {
+            final int messages = unflushedMessages;
+            try {
+                timed(0, this::flush);
+            } catch (final IOException e) {
+                lostMessages = messages;
+                broken = true;
+                pendingSince = 0;
+                CloseUtil.closeQuietly(socket);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of buffered messages lost by the last failed
+     * {@link #flushIfLingered(long)}.
+     *
+     * @return the number of lost messages.
+     */
+    synchronized int getLostMessages() {
+        return lostMessages;
+    }
+
+    private void flush() throws IOException {
+        pendingSince = 0;
         outputStream.flush();
+        unflushedMessages = 0;
+
+        endpoint.writeCompleted(unflushedBytes, System.nanoTime() - writeStartedAt);
+        unflushedBytes = 0;
     }
 
-    private void connect() throws IOException {
+    /**
+     * Establishes the connection (including the TLS handshake) unless it is already connected.
+     *
+     * @throws IOException if the connection can't be established.
+     */
+    synchronized void connect() throws IOException {
+        if (outputStream != null) {
+            return;
+        }
+
+        final EndpointSelector.Endpoint selected = endpointSelector.select();
+
         @SuppressWarnings("PMD.CloseResource")
-        final Socket socket = socketFactory.createSocket();
+        final Socket newSocket = socketFactory.apply(selected.getHost()).createSocket();
 
-        socket.setSoTimeout(socketTimeout);
-        final InetAddress ip = addressResolver.resolve();
-        socket.connect(new InetSocketAddress(ip, port), connectTimeout);
-        outputStream = socket.getOutputStream();
+        try {
+            newSocket.setSoTimeout(socketTimeout);
+            newSocket.connect(selected.getAddress(), connectTimeout);
+
+            if (newSocket instanceof SSLSocket) {
+                ((SSLSocket) newSocket).startHandshake();
+            }
+        } catch (final IOException e) {
+            CloseUtil.closeQuietly(newSocket);
+            selected.failed();
+            throw e;
+        }
+
+        selected.connected();
+        endpoint = selected;
+        lastActivity = System.nanoTime();
+        socket = newSocket;
+        channel = writeBufferSize > 0 ? null : newSocket.getChannel();
+        if (channel != null) {
+            outputStream = newSocket.getOutputStream();
+        } else {
+            // Without write buffer, the (reused) buffer is flushed after every write - so a message
+            // and its terminator are sent with a single write (and end up in the same TLS record)
+            outputStream = new BufferedOutputStream(newSocket.getOutputStream(),
+                writeBufferSize > 0 ? writeBufferSize : COALESCE_BUFFER_SIZE);
+        }
     }
 
+    /**
+     * Closes the connection - buffered messages are flushed before.
+     */
     @Override
-    protected void close() {
-        CloseUtil.closeQuietly(outputStream);
+    protected synchronized void close() {
+        pendingSince = 0;
+
+        // Flushing buffered messages may block as well
+        writeStartedAt = System.nanoTime();
+        try {
+            CloseUtil.closeQuietly(outputStream);
+        } finally {
+            writeStartedAt = 0;
+        }
+
+        if (endpoint != null && !released) {
+            released = true;
+            endpoint.disconnected(unflushedBytes);
+            unflushedBytes = 0;
+        }
+    }
+
+    @FunctionalInterface
+    private interface WriteAction {
+
+        void run() throws IOException;
+
     }
 
 }
@@ -0,0 +1,100 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Lock-free token bucket, implemented as generic cell rate algorithm (GCRA).
+ * <p>
+ * Instead of a token count, only the theoretical arrival time (TAT) of the next unit is stored.
+ * Every reservation moves the TAT forward by the time the reserved units "cost" at the configured
+ * rate. A reservation has to wait as long as the TAT is ahead of the current time by more than the
+ * burst allowance.
+ */
+final class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long unitsPerSecond;
+    private final long burstNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLong theoreticalArrivalTime;
+
+    /**
+     * Creates a new token bucket.
+     *
+     * @param unitsPerSecond the sustained rate.
+     * @param burstNanos the burst allowance (in nanoseconds of the sustained rate).
+     */
+    TokenBucket(final long unitsPerSecond, final long burstNanos) {
+        this(unitsPerSecond, burstNanos, System::nanoTime);
+    }
+
+    TokenBucket(final long unitsPerSecond, final long burstNanos, final LongSupplier nanoClock) {
+        if (unitsPerSecond < 1) {
+            throw new IllegalArgumentException("unitsPerSecond must be > 0");
+        }
+
+        this.unitsPerSecond = unitsPerSecond;
+        this.burstNanos = Math.max(0, burstNanos);
+        this.nanoClock = nanoClock;
+        theoreticalArrivalTime = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Reserves the given number of units.
+     *
+     * @param units the number of units to reserve.
+     * @param maxDelayNanos the maximum time the caller is willing to wait.
+     * @return the time (in nanoseconds) the caller has to wait before the reserved units may be
+     *     used or -1 if the units could not be reserved within {@code maxDelayNanos}.
+     */
+    long reserve(final long units, final long maxDelayNanos) {
+        final long cost = units * NANOS_PER_SECOND / unitsPerSecond;
+
+        while (true) {
+            final long now = nanoClock.getAsLong();
+            final long tat = theoreticalArrivalTime.get();
+            final long start = Math.max(tat, now);
+            final long delay = Math.max(0, start - now - burstNanos);
+
+            if (delay > maxDelayNanos) {
+                return -1;
+            }
+
+            if (theoreticalArrivalTime.compareAndSet(tat, start + cost)) {
+                return delay;
+            }
+        }
+    }
+
+    /**
+     * Returns previously reserved units (e.g. if a reservation of another bucket failed).
+     *
+     * @param units the number of units to return.
+     */
+    void cancel(final long units) {
+        theoreticalArrivalTime.addAndGet(-(units * NANOS_PER_SECOND / unitsPerSecond));
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf.compressor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * GZIP compressor that splits large messages into blocks which are compressed in parallel.
+ * <p>
+ * Every block is compressed as an independent GZIP member. The concatenation of multiple members
+ * is a valid GZIP stream (RFC 1952) and can be decoded by any standard compliant GZIP decoder.
+ * Messages smaller than the threshold are compressed as a single member on the calling thread.
+ */
+public class ParallelGZIPCompressor extends GZIPCompressor {
+
+    /**
+     * Default size of a single block (128 KiB).
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final int blockSize;
+
+    /**
+     * Creates a new compressor using the {@link #DEFAULT_BLOCK_SIZE}.
+     *
+     * @param pool the pool used for compressing the blocks.
+     * @param threshold minimum message size (in bytes) to use parallel compression.
+     */
+    public ParallelGZIPCompressor(final ForkJoinPool pool, final int threshold) {
+        this(pool, threshold, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new compressor.
+     *
+     * @param pool the pool used for compressing the blocks.
+     * @param threshold minimum message size (in bytes) to use parallel compression.
+     * @param blockSize size (in bytes) of a single block.
+     */
+    public ParallelGZIPCompressor(final ForkJoinPool pool, final int threshold, final int blockSize) {
+        if (blockSize < 1) {
+            throw new IllegalArgumentException("blockSize must be > 0");
+        }
+
+        this.pool = pool;
+        this.threshold = threshold;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public byte[] compress(final byte[] binMessage) {
+        if (binMessage.length < threshold || binMessage.length <= blockSize) {
+            return super.compress(binMessage);
+        }
+
+        final int blockCount = (binMessage.length + blockSize - 1) / blockSize;
+        final List<ForkJoinTask<byte[]>> tasks = new ArrayList<>(blockCount);
+        for (int i = 0; i < blockCount; i++) {
+            final int offset = i * blockSize;
+            final int length = Math.min(blockSize, binMessage.length - offset);
+            tasks.add(pool.submit(() -> compressBlock(binMessage, offset, length)));
+        }
+
+        final var bos = new ByteArrayOutputStream(binMessage.length);
+        for (final ForkJoinTask<byte[]> task : tasks) {
+            bos.writeBytes(task.join());
+        }
+
+        return bos.toByteArray();
+    }
+
+    private byte[] compressBlock(final byte[] binMessage, final int offset, final int length) {
+        final var bos = new ByteArrayOutputStream(length);
+        try (OutputStream wrappedOut = wrap(bos)) {
+            wrappedOut.write(binMessage, offset, length);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bos.toByteArray();
+    }
+
+}
@@ -0,0 +1,434 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf.pool;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Base class for object pools. Takes care of creating, evicting and recycling objects - the
+ * storage of idle objects is up to the implementation.
+ * <p>
+ * If a background executor is given, objects are created in the background (e.g. a connection is
+ * established by the factory). An object is put into the storage only after it has been created,
+ * so borrowers never wait for the factory itself - they only wait for an idle object. In addition,
+ * a maintenance task replaces objects that are about to reach their maximum life or idle time
+ * ahead of time. An idle object is swapped immediately, a borrowed object when it is returned.
+ * <p>
+ * The maximum life time of every object can be randomized (reduced by up to the given jitter
+ * percentage), so objects created at the same time don't expire at the same time.
+ * <p>
+ * Objects that are found dead (see {@link BasePooledObject#isAlive()}) when they are about to be
+ * handed out or by {@link #probeIdleObjects()} are replaced as well.
+ *
+ * @param <T> the type of pooled objects.
+ */
+public abstract class AbstractObjectPool<T extends BasePooledObject> implements Closeable {
+
+    private static final int MILLIS_PER_SECOND = 1000;
+    private static final int MAX_JITTER = 100;
+
+    /**
+     * Interval (in milliseconds) of the maintenance task.
+     */
+    private static final long MAINTENANCE_INTERVAL = 1000;
+
+    /**
+     * Time (in milliseconds) before expiry an object is replaced by the maintenance task.
+     */
+    private static final long ROTATION_LEAD = 2 * MAINTENANCE_INTERVAL;
+
+    private final Set<T> allObjects = ConcurrentHashMap.newKeySet();
+    private final Set<T> rotating = ConcurrentHashMap.newKeySet();
+    private final Map<T, T> replacements = new ConcurrentHashMap<>();
+    private final LongAdder deadObjects = new LongAdder();
+
+    private final PooledObjectFactory<T> objectFactory;
+    private final int poolSize;
+    private final int maxWaitTime;
+    private final int maxLifeTime;
+    private final int maxIdleTime;
+    private final int lifeTimeJitter;
+    private final ScheduledExecutorService backgroundExecutor;
+    private ScheduledFuture<?> maintenance;
+    private volatile boolean closed;
+
+    protected AbstractObjectPool(final PooledObjectFactory<T> objectFactory,
+                                 final int poolSize, final int maxWaitTime,
+                                 final int maxLifeTime, final int maxIdleTime,
+                                 final ScheduledExecutorService backgroundExecutor,
+                                 final int lifeTimeJitter) {
+
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("poolSize must be > 0");
+        }
+
+        if (lifeTimeJitter < 0 || lifeTimeJitter > MAX_JITTER) {
+            throw new IllegalArgumentException("lifeTimeJitter must be between 0 and 100");
+        }
+
+        this.objectFactory = objectFactory;
+        this.poolSize = poolSize;
+        this.maxWaitTime = maxWaitTime;
+        this.maxLifeTime = maxLifeTime < 0 ? maxLifeTime : maxLifeTime * MILLIS_PER_SECOND;
+        this.maxIdleTime = maxIdleTime < 0 ? maxIdleTime : maxIdleTime * MILLIS_PER_SECOND;
+        this.backgroundExecutor = backgroundExecutor;
+        this.lifeTimeJitter = lifeTimeJitter;
+    }
+
+    /**
+     * Creates all objects of this pool and starts the maintenance task (if a background executor
+     * is configured). Has to be called by the constructor of the implementation after its storage
+     * has been initialized.
+     */
+    protected final void populate() {
+        for (int i = 0; i < poolSize; i++) {
+            create(i);
+        }
+
+        if (backgroundExecutor != null && (maxLifeTime >= 0 || maxIdleTime >= 0)) {
+            maintenance = backgroundExecutor.scheduleWithFixedDelay(this::maintain,
+                MAINTENANCE_INTERVAL, MAINTENANCE_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Creates a new object for the given slot and puts it into the storage - either directly or
+     * in the background (if a background executor is configured).
+     */
+    private void create(final int slot) {
+        if (backgroundExecutor == null) {
+            put(newObject(slot));
+        } else {
+            runInBackground(() -> put(newObject(slot)));
+        }
+    }
+
+    /**
+     * Runs the given task by the background executor. If the executor has already been shut down
+     * (e.g. while the owner of this pool is being stopped), the task is run by the current thread.
+     */
+    private void runInBackground(final Runnable task) {
+        try {
+            backgroundExecutor.execute(task);
+        } catch (final RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private T newObject(final int slot) {
+        final T pooledObject = objectFactory.newInstance();
+        pooledObject.setSlot(slot);
+        pooledObject.setMaxLifeTime(randomizedMaxLifeTime());
+        allObjects.add(pooledObject);
+
+        // The pool could have been closed while the object was being created
+        if (closed) {
+            pooledObject.close();
+        }
+
+        return pooledObject;
+    }
+
+    private long randomizedMaxLifeTime() {
+        if (maxLifeTime <= 0 || lifeTimeJitter == 0) {
+            return maxLifeTime;
+        }
+
+        final long maxJitter = (long) maxLifeTime * lifeTimeJitter / MAX_JITTER;
+        return maxLifeTime - ThreadLocalRandom.current().nextLong(maxJitter + 1);
+    }
+
+    protected final int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Maximum time (in milliseconds) to wait for an object.
+     *
+     * @return the maximum time to wait or a negative value to wait infinitely.
+     */
+    protected final int getMaxWaitTime() {
+        return maxWaitTime;
+    }
+
+    @SuppressWarnings({"checkstyle:illegalcatch", "PMD.NullAssignment"})
+    public void execute(final PooledObjectConsumer<T> consumer) throws Exception {
+        T pooledObject = null;
+        try {
+            pooledObject = borrowObject();
+            consumer.accept(pooledObject);
+        } catch (final Exception e) {
+            if (pooledObject != null) {
+                invalidateObject(pooledObject);
+                pooledObject = null;
+            }
+
+            throw e;
+        } finally {
+            if (pooledObject != null) {
+                returnObject(pooledObject);
+            }
+        }
+    }
+
+    public T borrowObject() throws InterruptedException {
+        final T pooledObject = take();
+        final T result = isUsable(pooledObject) ? pooledObject : replace(pooledObject);
+        result.borrow();
+        return result;
+    }
+
+    /**
+     * Takes an idle object from the storage - waiting up to {@link #getMaxWaitTime()}.
+     *
+     * @return the idle object.
+     * @throws InterruptedException if the current thread has been interrupted while waiting.
+     * @throws IllegalStateException if no object became available in time.
+     */
+    protected abstract T take() throws InterruptedException;
+
+    /**
+     * Puts an idle object (back) into the storage.
+     *
+     * @param pooledObject the idle object.
+     */
+    protected abstract void put(T pooledObject);
+
+    /**
+     * Removes the given object from the storage if it is currently idle.
+     *
+     * @param pooledObject the object to remove.
+     * @return {@code true} if the object was idle and has been removed.
+     */
+    protected abstract boolean remove(T pooledObject);
+
+    private boolean isUsable(final T pooledObject) {
+        return !needToEvict(pooledObject) && isAlive(pooledObject);
+    }
+
+    private boolean isAlive(final T pooledObject) {
+        if (pooledObject.isAlive()) {
+            return true;
+        }
+
+        deadObjects.increment();
+        return false;
+    }
+
+    /**
+     * Number of objects that have been replaced because they were found dead (see
+     * {@link BasePooledObject#isAlive()}).
+     *
+     * @return the number of dead objects found so far.
+     */
+    public long getDeadObjectCount() {
+        return deadObjects.sum();
+    }
+
+    private boolean needToEvict(final T pooledObject) {
+        final long objectMaxLifeTime = pooledObject.getMaxLifeTime();
+        if (objectMaxLifeTime >= 0 && pooledObject.lifeTime() > objectMaxLifeTime) {
+            return true;
+        }
+
+        return maxIdleTime >= 0 && pooledObject.idleTime() > maxIdleTime;
+    }
+
+    /**
+     * Replaces an evicted object. Without background executor, the new object is returned
+     * directly. Otherwise, the new object is created in the background and the next idle object
+     * is returned.
+     */
+    private T replace(final T oldInstance) throws InterruptedException {
+        retire(oldInstance);
+
+        // A replacement has already been created by the maintenance task
+        final T replacement = replacements.remove(oldInstance);
+        if (replacement != null) {
+            return replacement;
+        }
+
+        if (backgroundExecutor == null) {
+            return newObject(oldInstance.getSlot());
+        }
+
+        create(oldInstance.getSlot());
+        final T next = take();
+        return isUsable(next) ? next : replace(next);
+    }
+
+    private void retire(final T oldInstance) {
+        allObjects.remove(oldInstance);
+        oldInstance.close();
+    }
+
+    /**
+     * Swaps the given object with its replacement (created by the maintenance task) - if any.
+     *
+     * @return {@code true} if the object has been swapped.
+     */
+    private boolean swap(final T oldInstance) {
+        final T replacement = replacements.remove(oldInstance);
+        if (replacement == null) {
+            return false;
+        }
+
+        retire(oldInstance);
+        put(replacement);
+        return true;
+    }
+
+    public void returnObject(final T pooledObject) {
+        if (!swap(pooledObject)) {
+            put(pooledObject);
+        }
+    }
+
+    public void invalidateObject(final T pooledObject) {
+        if (!swap(pooledObject)) {
+            retire(pooledObject);
+            create(pooledObject.getSlot());
+        }
+    }
+
+    private void maintain() {
+        for (final T pooledObject : allObjects) {
+            if (needsRotation(pooledObject) && rotating.add(pooledObject)) {
+                runInBackground(() -> rotate(pooledObject));
+            }
+        }
+    }
+
+    private boolean needsRotation(final T pooledObject) {
+        if (isReplacing(pooledObject)) {
+            return false;
+        }
+
+        final long objectMaxLifeTime = pooledObject.getMaxLifeTime();
+        if (objectMaxLifeTime >= 0 && pooledObject.lifeTime() > objectMaxLifeTime - ROTATION_LEAD) {
+            return true;
+        }
+
+        return maxIdleTime >= 0 && pooledObject.idleTime() > maxIdleTime - ROTATION_LEAD;
+    }
+
+    private boolean isReplacing(final T pooledObject) {
+        return closed || replacements.containsKey(pooledObject) || replacements.containsValue(pooledObject);
+    }
+
+    /**
+     * Replaces the given object ahead of its expiry (e.g. because it is connected to a server that
+     * shouldn't be used anymore). Like for expiring objects, the replacement is created first (in the
+     * background if a background executor is configured) - an idle object is swapped immediately, a
+     * borrowed one when it is returned.
+     *
+     * @param pooledObject the object to replace.
+     * @return {@code true} if the replacement has been initiated, {@code false} if the object is
+     *     not part of this pool (anymore) or is already being replaced.
+     */
+    public boolean replaceObject(final T pooledObject) {
+        if (!allObjects.contains(pooledObject) || isReplacing(pooledObject) || !rotating.add(pooledObject)) {
+            return false;
+        }
+
+        if (backgroundExecutor == null) {
+            rotate(pooledObject);
+        } else {
+            runInBackground(() -> rotate(pooledObject));
+        }
+
+        return true;
+    }
+
+    /**
+     * Creates a replacement for the given object (in the background). An idle object is swapped
+     * immediately, a borrowed one when it is returned.
+     */
+    private void rotate(final T oldInstance) {
+        try {
+            final T replacement = newObject(oldInstance.getSlot());
+            replacements.put(oldInstance, replacement);
+
+            if (!allObjects.contains(oldInstance)) {
+                // The object has been evicted meanwhile
+                if (replacements.remove(oldInstance, replacement)) {
+                    retire(replacement);
+                }
+            } else if (remove(oldInstance)) {
+                swap(oldInstance);
+            }
+        } finally {
+            rotating.remove(oldInstance);
+        }
+    }
+
+    /**
+     * Checks all idle objects (see {@link BasePooledObject#isAlive()}) and replaces the dead ones -
+     * so they are detected before they are handed out. An object is taken out of the pool while it is
+     * checked.
+     */
+    public void probeIdleObjects() {
+        for (final T pooledObject : allObjects) {
+            if (!isReplacing(pooledObject) && remove(pooledObject)) {
+                if (isAlive(pooledObject)) {
+                    returnObject(pooledObject);
+                } else {
+                    invalidateObject(pooledObject);
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs the given action for every object of this pool - no matter if it is currently
+     * borrowed or not. The action has to take care of thread-safety.
+     *
+     * @param action the action to perform.
+     */
+    public void forEach(final Consumer<T> action) {
+        for (final T object : allObjects) {
+            action.accept(object);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+
+        if (maintenance != null) {
+            maintenance.cancel(false);
+        }
+
+        for (final T object : allObjects) {
+            object.close();
+        }
+    }
+
+}
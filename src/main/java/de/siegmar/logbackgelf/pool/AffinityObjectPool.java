@@ -0,0 +1,175 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf.pool;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free object pool that keeps every object in a fixed slot. A thread first tries to claim the
+ * object it used last (its preferred slot), then steals an idle object from any other slot. If all
+ * objects are borrowed, the thread parks until an object is returned or the wait time elapsed.
+ * <p>
+ * Claiming and returning an object is a single atomic operation on the slot array - no locks and no
+ * allocations are involved unless a thread has to wait.
+ *
+ * @param <T> the type of pooled objects.
+ */
+public final class AffinityObjectPool<T extends BasePooledObject> extends AbstractObjectPool<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<int[]> preferredSlot;
+
+    public AffinityObjectPool(final PooledObjectFactory<T> objectFactory,
+                              final int poolSize, final int maxWaitTime,
+                              final int maxLifeTime, final int maxIdleTime) {
+
+        this(objectFactory, poolSize, maxWaitTime, maxLifeTime, maxIdleTime, null, 0);
+    }
+
+    /**
+     * Creates a new pool.
+     *
+     * @param objectFactory the factory of the pooled objects.
+     * @param poolSize the number of objects (minimum 1).
+     * @param maxWaitTime the maximum time (in milliseconds) to wait for an object or -1.
+     * @param maxLifeTime the maximum life time (in seconds) of an object or -1.
+     * @param maxIdleTime the maximum idle time (in seconds) of an object or -1.
+     * @param backgroundExecutor the executor for creating objects and replacing expiring
+     *                           objects in the background or {@code null} to create them by
+     *                           the calling thread.
+     * @param lifeTimeJitter the percentage (0-100) by which the maximum life time of every
+     *                       object is randomly reduced.
+     */
+    public AffinityObjectPool(final PooledObjectFactory<T> objectFactory,
+                              final int poolSize, final int maxWaitTime,
+                              final int maxLifeTime, final int maxIdleTime,
+                              final ScheduledExecutorService backgroundExecutor,
+                              final int lifeTimeJitter) {
+
+        super(objectFactory, poolSize, maxWaitTime, maxLifeTime, maxIdleTime, backgroundExecutor,
+            lifeTimeJitter);
+        slots = new AtomicReferenceArray<>(poolSize);
+        preferredSlot = ThreadLocal.withInitial(() ->
+            new int[]{(int) (Thread.currentThread().getId() % poolSize)});
+        populate();
+    }
+
+    @Override
+    protected T take() throws InterruptedException {
+        final T pooledObject = tryTake();
+        return pooledObject != null ? pooledObject : awaitObject();
+    }
+
+    private T tryTake() {
+        final int[] preferred = preferredSlot.get();
+        final T own = slots.getAndSet(preferred[0], null);
+        if (own != null) {
+            return own;
+        }
+
+        final int size = slots.length();
+        for (int i = 1; i < size; i++) {
+            final int idx = (preferred[0] + i) % size;
+            final T pooledObject = slots.get(idx);
+            if (pooledObject != null && slots.compareAndSet(idx, pooledObject, null)) {
+                preferred[0] = idx;
+                return pooledObject;
+            }
+        }
+
+        return null;
+    }
+
+    private T awaitObject() throws InterruptedException {
+        final long maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(getMaxWaitTime());
+        final long deadline = System.nanoTime() + maxWaitNanos;
+        final Thread current = Thread.currentThread();
+
+        T pooledObject = null;
+        long remaining = maxWaitNanos;
+        boolean signaled = false;
+        try {
+            while (pooledObject == null && (maxWaitNanos < 0 || remaining > 0)) {
+                waiters.add(current);
+                try {
+                    // Check again after registration, an object could have been returned meanwhile
+                    pooledObject = tryTake();
+                    if (pooledObject == null) {
+                        park(maxWaitNanos < 0 ? -1 : remaining);
+                        pooledObject = tryTake();
+                    }
+                } finally {
+                    // Not registered anymore if a returning thread has chosen this one to wake up
+                    signaled = !waiters.remove(current);
+                }
+                remaining = deadline - System.nanoTime();
+            }
+        } finally {
+            // The wakeup may have been meant for another object than the one taken (or none) -
+            // pass it on, so another waiter doesn't keep waiting while an object is idle
+            if (signaled) {
+                signalWaiter();
+            }
+        }
+
+        if (pooledObject == null) {
+            throw new IllegalStateException("Couldn't acquire connection from pool");
+        }
+
+        return pooledObject;
+    }
+
+    private static void park(final long nanos) throws InterruptedException {
+        if (nanos < 0) {
+            LockSupport.park();
+        } else {
+            LockSupport.parkNanos(nanos);
+        }
+
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+
+    @Override
+    protected void put(final T pooledObject) {
+        slots.set(pooledObject.getSlot(), pooledObject);
+        signalWaiter();
+    }
+
+    private void signalWaiter() {
+        final Thread waiter = waiters.poll();
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    @Override
+    protected boolean remove(final T pooledObject) {
+        return slots.compareAndSet(pooledObject.getSlot(), pooledObject, null);
+    }
+
+}
@@ -22,7 +22,9 @@ package de.siegmar.logbackgelf.pool;
 public class BasePooledObject {
 
     private final long createdAt = System.currentTimeMillis();
-    private long lastBorrowed = createdAt;
+    private volatile long lastBorrowed = createdAt;
+    private int slot;
+    private long maxLifeTime = -1;
 
     final long lifeTime() {
         return System.currentTimeMillis() - createdAt;
@@ -36,6 +38,40 @@ public class BasePooledObject {
         lastBorrowed = System.currentTimeMillis();
     }
 
+    /**
+     * Position of this object within the pool (used by pool implementations that keep objects in
+     * fixed slots).
+     */
+    final int getSlot() {
+        return slot;
+    }
+
+    final void setSlot(final int slot) {
+        this.slot = slot;
+    }
+
+    /**
+     * Maximum life time (in milliseconds) of this object - individually randomized by the pool.
+     */
+    final long getMaxLifeTime() {
+        return maxLifeTime;
+    }
+
+    final void setMaxLifeTime(final long maxLifeTime) {
+        this.maxLifeTime = maxLifeTime;
+    }
+
+    /**
+     * Checks if this (idle) object is still usable - e.g. if a connection hasn't been closed by the
+     * peer in the meantime. Called by the pool before an idle object is handed out and by
+     * {@link AbstractObjectPool#probeIdleObjects()}.
+     *
+     * @return {@code true} if this object is usable.
+     */
+    protected boolean isAlive() {
+        return true;
+    }
+
     protected void close() {
     }
 
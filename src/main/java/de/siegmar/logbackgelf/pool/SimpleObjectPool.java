@@ -19,116 +19,70 @@
 
 package de.siegmar.logbackgelf.pool;
 
-import java.io.Closeable;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
-public final class SimpleObjectPool<T extends BasePooledObject> implements Closeable {
-
-    private static final int MILLIS_PER_SECOND = 1000;
+public final class SimpleObjectPool<T extends BasePooledObject> extends AbstractObjectPool<T> {
 
     private final BlockingQueue<T> pool = new LinkedBlockingQueue<>();
-    private final Set<T> allObjects = new HashSet<>();
-
-    private final PooledObjectFactory<T> objectFactory;
-    private final int maxWaitTime;
-    private final int maxLifeTime;
-    private final int maxIdleTime;
 
     public SimpleObjectPool(final PooledObjectFactory<T> objectFactory,
                             final int poolSize, final int maxWaitTime,
                             final int maxLifeTime, final int maxIdleTime) {
 
-        if (poolSize < 1) {
-            throw new IllegalArgumentException("poolSize must be > 0");
-        }
-
-        this.objectFactory = objectFactory;
-        this.maxWaitTime = maxWaitTime;
-        this.maxLifeTime = maxLifeTime < 0 ? maxLifeTime : maxLifeTime * MILLIS_PER_SECOND;
-        this.maxIdleTime = maxIdleTime < 0 ? maxIdleTime : maxIdleTime * MILLIS_PER_SECOND;
-
-        for (int i = 0; i < poolSize; i++) {
-            final T pooledObject = this.objectFactory.newInstance();
-            pool.add(pooledObject);
-            allObjects.add(pooledObject);
-        }
-    }
-
-    @SuppressWarnings({"checkstyle:illegalcatch", "PMD.NullAssignment"})
-    public void execute(final PooledObjectConsumer<T> consumer) throws Exception {
-        T pooledObject = null;
-        try {
-            pooledObject = borrowObject();
-            consumer.accept(pooledObject);
-        } catch (final Exception e) {
-            if (pooledObject != null) {
-                invalidateObject(pooledObject);
-                pooledObject = null;
-            }
-
-            throw e;
-        } finally {
-            if (pooledObject != null) {
-                returnObject(pooledObject);
-            }
-        }
+        this(objectFactory, poolSize, maxWaitTime, maxLifeTime, maxIdleTime, null, 0);
     }
 
-    public T borrowObject() throws InterruptedException {
-        final T pooledObject;
-        if (maxWaitTime < 0) {
-            pooledObject = pool.take();
-        } else {
-            pooledObject = pool.poll(maxWaitTime, TimeUnit.MILLISECONDS);
-
-            if (pooledObject == null) {
-                throw new IllegalStateException("Couldn't acquire connection from pool");
-            }
-        }
+    /**
+     * Creates a new pool.
+     *
+     * @param objectFactory the factory of the pooled objects.
+     * @param poolSize the number of objects (minimum 1).
+     * @param maxWaitTime the maximum time (in milliseconds) to wait for an object or -1.
+     * @param maxLifeTime the maximum life time (in seconds) of an object or -1.
+     * @param maxIdleTime the maximum idle time (in seconds) of an object or -1.
+     * @param backgroundExecutor the executor for creating objects and replacing expiring
+     *                           objects in the background or {@code null} to create them by
+     *                           the calling thread.
+     * @param lifeTimeJitter the percentage (0-100) by which the maximum life time of every
+     *                       object is randomly reduced.
+     */
+    public SimpleObjectPool(final PooledObjectFactory<T> objectFactory,
+                            final int poolSize, final int maxWaitTime,
+                            final int maxLifeTime, final int maxIdleTime,
+                            final ScheduledExecutorService backgroundExecutor,
+                            final int lifeTimeJitter) {
 
-        final T result = needToEvict(pooledObject) ? recycle(pooledObject) : pooledObject;
-        result.borrow();
-        return result;
+        super(objectFactory, poolSize, maxWaitTime, maxLifeTime, maxIdleTime, backgroundExecutor,
+            lifeTimeJitter);
+        populate();
     }
 
-    private boolean needToEvict(final T pooledObject) {
-        if (maxLifeTime >= 0 && pooledObject.lifeTime() > maxLifeTime) {
-            return true;
+    @Override
+    protected T take() throws InterruptedException {
+        if (getMaxWaitTime() < 0) {
+            return pool.take();
         }
 
-        return maxIdleTime >= 0 && pooledObject.idleTime() > maxIdleTime;
-    }
+        final T pooledObject = pool.poll(getMaxWaitTime(), TimeUnit.MILLISECONDS);
 
-    private T recycle(final T oldInstance) {
-        final T newInstance = objectFactory.newInstance();
-        synchronized (allObjects) {
-            allObjects.remove(oldInstance);
-            allObjects.add(newInstance);
+        if (pooledObject == null) {
+            throw new IllegalStateException("Couldn't acquire connection from pool");
         }
 
-        oldInstance.close();
-        return newInstance;
+        return pooledObject;
     }
 
-    public void returnObject(final T pooledObject) {
+    @Override
+    protected void put(final T pooledObject) {
         pool.add(pooledObject);
     }
 
-    public void invalidateObject(final T pooledObject) {
-        pool.add(recycle(pooledObject));
-    }
-
     @Override
-    public void close() {
-        synchronized (allObjects) {
-            for (T object : allObjects) {
-                object.close();
-            }
-        }
+    protected boolean remove(final T pooledObject) {
+        return pool.remove(pooledObject);
     }
 
 }
@@ -20,9 +20,19 @@
 package de.siegmar.logbackgelf;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
@@ -48,4 +58,145 @@ class AddressResolverTest {
         assertThat(resolver.resolve().getHostAddress()).isEqualTo("8.8.8.8");
     }
 
+    @Test
+    void sameAddresses() throws UnknownHostException {
+        final InetAddress a = InetAddress.getByName("127.0.0.1");
+        final InetAddress b = InetAddress.getByName("8.8.8.8");
+
+        assertThat(AddressResolver.sameAddresses(new InetAddress[]{a, b}, new InetAddress[]{b, a})).isTrue();
+        assertThat(AddressResolver.sameAddresses(new InetAddress[]{a, b}, new InetAddress[]{a})).isFalse();
+        assertThat(AddressResolver.sameAddresses(new InetAddress[]{a}, new InetAddress[]{b})).isFalse();
+        assertThat(AddressResolver.sameAddresses(new InetAddress[]{a}, null)).isFalse();
+        assertThat(AddressResolver.sameAddresses(null, null)).isTrue();
+
+        // duplicates
+        assertThat(AddressResolver.sameAddresses(new InetAddress[]{a, a, b}, new InetAddress[]{a, b, a})).isTrue();
+        assertThat(AddressResolver.sameAddresses(new InetAddress[]{a, a, b}, new InetAddress[]{a, b, b})).isFalse();
+        assertThat(AddressResolver.sameAddresses(new InetAddress[]{a, b}, new InetAddress[]{a, a})).isFalse();
+    }
+
+    @Test
+    void cache() throws UnknownHostException {
+        final AtomicInteger lookups = new AtomicInteger();
+        try (AddressResolver resolver = new AddressResolver("foo", 60_000, 1_000, 60_000) {
+            @Override
+            InetAddress[] lookup() throws UnknownHostException {
+                lookups.incrementAndGet();
+                return new InetAddress[]{InetAddress.getByName("127.0.0.1")};
+            }
+        }) {
+            final InetAddress[] first = resolver.resolveAll();
+            assertThat(resolver.resolveAll()).isSameAs(first);
+            assertThat(lookups).hasValue(1);
+            assertThat(resolver.getGeneration()).isOne();
+        }
+    }
+
+    @Test
+    void concurrentFirstLookup() throws Exception {
+        final int threads = 8;
+        final AtomicInteger lookups = new AtomicInteger();
+        final CountDownLatch lookupStarted = new CountDownLatch(1);
+        final CountDownLatch lookupContinue = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (AddressResolver resolver = new AddressResolver("foo", 60_000, 1_000, 60_000) {
+            @Override
+            InetAddress[] lookup() throws UnknownHostException {
+                lookups.incrementAndGet();
+                lookupStarted.countDown();
+                try {
+                    lookupContinue.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new InetAddress[]{InetAddress.getByName("127.0.0.1")};
+            }
+        }) {
+            final List<Future<InetAddress[]>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(resolver::resolveAll));
+            }
+
+            lookupStarted.await();
+            lookupContinue.countDown();
+
+            final InetAddress[] first = results.get(0).get(10, TimeUnit.SECONDS);
+            for (final Future<InetAddress[]> result : results) {
+                assertThat(result.get(10, TimeUnit.SECONDS)).isSameAs(first);
+            }
+            assertThat(lookups).hasValue(1);
+            assertThat(resolver.getGeneration()).isOne();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void lastKnownGood() throws UnknownHostException {
+        final AtomicInteger lookups = new AtomicInteger();
+        try (AddressResolver resolver = new AddressResolver("foo", 1, 60_000, 60_000) {
+            @Override
+            InetAddress[] lookup() throws UnknownHostException {
+                if (lookups.incrementAndGet() > 1) {
+                    throw new UnknownHostException("foo");
+                }
+                return new InetAddress[]{InetAddress.getByName("127.0.0.1")};
+            }
+        }) {
+            assertThat(resolver.resolve().getHostAddress()).isEqualTo("127.0.0.1");
+
+            // trigger asynchronous refresh that fails
+            await().until(() -> {
+                resolver.resolveAll();
+                return lookups.get() > 1;
+            });
+
+            assertThat(resolver.resolve().getHostAddress()).isEqualTo("127.0.0.1");
+            assertThat(resolver.getGeneration()).isOne();
+        }
+    }
+
+    @Test
+    void staleLastKnownGood() throws UnknownHostException {
+        final AtomicInteger lookups = new AtomicInteger();
+        try (AddressResolver resolver = new AddressResolver("foo", 1, 1, 100) {
+            @Override
+            InetAddress[] lookup() throws UnknownHostException {
+                if (lookups.incrementAndGet() > 1) {
+                    throw new UnknownHostException("foo");
+                }
+                return new InetAddress[]{InetAddress.getByName("127.0.0.1")};
+            }
+        }) {
+            assertThat(resolver.resolve().getHostAddress()).isEqualTo("127.0.0.1");
+
+            // last-known-good addresses are dropped after the max stale time
+            await().atMost(Duration.ofSeconds(5)).until(() -> {
+                try {
+                    resolver.resolveAll();
+                    return false;
+                } catch (final UnknownHostException e) {
+                    return true;
+                }
+            });
+            assertThat(lookups.get()).isGreaterThan(1);
+        }
+    }
+
+    @Test
+    void negativeCache() {
+        final AtomicInteger lookups = new AtomicInteger();
+        try (AddressResolver resolver = new AddressResolver("foo", 60_000, 60_000, 60_000) {
+            @Override
+            InetAddress[] lookup() throws UnknownHostException {
+                lookups.incrementAndGet();
+                throw new UnknownHostException("foo");
+            }
+        }) {
+            assertThatThrownBy(resolver::resolve).isInstanceOf(UnknownHostException.class);
+            assertThatThrownBy(resolver::resolve).isInstanceOf(UnknownHostException.class);
+            assertThat(lookups).hasValue(1);
+        }
+    }
+
 }
@@ -0,0 +1,52 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import org.junit.jupiter.api.Test;
+
+class AppenderMetricsTest {
+
+    private final AppenderMetrics metrics = new AppenderMetrics();
+
+    @Test
+    void counters() {
+        metrics.increment("foo");
+        metrics.increment("foo");
+        metrics.add("bar", 5);
+
+        assertThat(metrics.get("foo")).isEqualTo(2);
+        assertThat(metrics.get("bar")).isEqualTo(5);
+        assertThat(metrics.get("unknown")).isZero();
+    }
+
+    @Test
+    void gauges() {
+        metrics.registerGauge("gauge", () -> 42);
+        metrics.increment("counter");
+
+        assertThat(metrics.get("gauge")).isEqualTo(42);
+        assertThat(metrics.snapshot())
+            .containsExactly(entry("counter", 1L), entry("gauge", 42L));
+    }
+
+}
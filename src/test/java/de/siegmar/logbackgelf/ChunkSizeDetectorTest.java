@@ -0,0 +1,59 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.junit.jupiter.api.Test;
+
+class ChunkSizeDetectorTest {
+
+    @Test
+    void loopback() throws IOException {
+        assertThat(ChunkSizeDetector.detect(InetAddress.getLoopbackAddress(), 12201))
+            .isEqualTo(GelfUdpChunker.MAX_CHUNK_SIZE);
+    }
+
+    @Test
+    void ipv4() throws UnknownHostException {
+        final InetAddress address = InetAddress.getByName("192.168.1.1");
+        assertThat(ChunkSizeDetector.chunkSize(1500, address)).isEqualTo(1472);
+        assertThat(ChunkSizeDetector.chunkSize(9000, address)).isEqualTo(8972);
+    }
+
+    @Test
+    void ipv6() throws UnknownHostException {
+        final InetAddress address = InetAddress.getByName("2001:db8::1");
+        assertThat(ChunkSizeDetector.chunkSize(1500, address)).isEqualTo(1452);
+        assertThat(ChunkSizeDetector.chunkSize(9000, address)).isEqualTo(8952);
+    }
+
+    @Test
+    void limits() throws UnknownHostException {
+        final InetAddress address = InetAddress.getByName("192.168.1.1");
+        assertThat(ChunkSizeDetector.chunkSize(20, address)).isEqualTo(GelfUdpChunker.MIN_CHUNK_SIZE);
+        assertThat(ChunkSizeDetector.chunkSize(100_000, address)).isEqualTo(GelfUdpChunker.MAX_CHUNK_SIZE);
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.core.spi.ContextAwareBase;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AppenderMetrics metrics = new AppenderMetrics();
+    private final StatusRecorder status = new StatusRecorder();
+
+    @Test
+    void opensAfterConsecutiveFailures() throws Exception {
+        final CircuitBreaker cb = newCircuitBreaker(3);
+
+        fail(cb);
+        fail(cb);
+        cb.call(() -> null);
+        fail(cb);
+        fail(cb);
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        fail(cb);
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(cb.allowRequest()).isFalse();
+        assertThat(metrics.get("test.circuit_state")).isOne();
+        assertThat(metrics.get("test.circuit_opened")).isOne();
+        assertThat(status.messages)
+            .containsExactly("Circuit breaker for tcp://test:12201 opened - rejecting messages for 1000 ms");
+    }
+
+    @Test
+    void singleProbeAfterCoolDown() throws Exception {
+        final CircuitBreaker cb = newCircuitBreaker(1);
+        fail(cb);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertThat(cb.allowRequest()).isFalse();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(cb.allowRequest()).isTrue();
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        // Only a single probe is let through
+        assertThat(cb.allowRequest()).isFalse();
+
+        cb.call(() -> null);
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(cb.allowRequest()).isTrue();
+        assertThat(metrics.get("test.circuit_state")).isZero();
+        assertThat(status.messages).hasSize(3);
+    }
+
+    @Test
+    void failedProbeReopens() {
+        final CircuitBreaker cb = newCircuitBreaker(5);
+        for (int i = 0; i < 5; i++) {
+            fail(cb);
+        }
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(cb.allowRequest()).isTrue();
+
+        fail(cb);
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(cb.allowRequest()).isFalse();
+        assertThat(metrics.get("test.circuit_opened")).isEqualTo(2);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(cb.allowRequest()).isTrue();
+    }
+
+    @Test
+    void lostProbeReopens() {
+        final CircuitBreaker cb = newCircuitBreaker(1);
+        fail(cb);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(cb.allowRequest()).isTrue();
+
+        // Result of the probe is never reported
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertThat(cb.allowRequest()).isFalse();
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(cb.allowRequest()).isFalse();
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(metrics.get("test.circuit_opened")).isEqualTo(2);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(cb.allowRequest()).isTrue();
+    }
+
+    @Test
+    void lateFailureDoesNotExtendCoolDown() {
+        final CircuitBreaker cb = newCircuitBreaker(1);
+        fail(cb);
+
+        // Failure of a request that has been sent before the circuit opened
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        fail(cb);
+        assertThat(metrics.get("test.circuit_opened")).isOne();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertThat(cb.allowRequest()).isTrue();
+    }
+
+    @Test
+    void disabled() {
+        final CircuitBreaker cb = newCircuitBreaker(0);
+        for (int i = 0; i < 100; i++) {
+            fail(cb);
+        }
+
+        assertThat(cb.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(cb.allowRequest()).isTrue();
+    }
+
+    private CircuitBreaker newCircuitBreaker(final int failureThreshold) {
+        return new CircuitBreaker(failureThreshold, 1000, status, "tcp://test:12201", metrics, "test",
+            clock::get);
+    }
+
+    private static void fail(final CircuitBreaker cb) {
+        assertThatThrownBy(() -> cb.call(() -> {
+            throw new IOException("Connection refused");
+        })).isInstanceOf(IOException.class);
+    }
+
+    private static final class StatusRecorder extends ContextAwareBase {
+
+        private final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void addInfo(final String msg) {
+            messages.add(msg);
+        }
+
+        @Override
+        public void addWarn(final String msg) {
+            messages.add(msg);
+        }
+
+    }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class CounterMessageIdSupplierTest {
+
+    @Test
+    void unique() {
+        final CounterMessageIdSupplier mis = new CounterMessageIdSupplier();
+        final long first = mis.getAsLong();
+        final long second = mis.getAsLong();
+
+        assertThat(second).isNotEqualTo(first);
+
+        // Same per-JVM prefix
+        assertThat(second >>> 40).isEqualTo(first >>> 40);
+    }
+
+    @Timeout(30)
+    @Test
+    void noCollisionsUnderConcurrentLoad() throws Exception {
+        final int threads = 8;
+        final int idsPerThread = 200_000;
+        final CounterMessageIdSupplier mis = new CounterMessageIdSupplier();
+        final Set<Long> ids = ConcurrentHashMap.newKeySet(threads * idsPerThread);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            final List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    int collisions = 0;
+                    for (int i = 0; i < idsPerThread; i++) {
+                        if (!ids.add(mis.getAsLong())) {
+                            collisions++;
+                        }
+                    }
+                    return collisions;
+                }));
+            }
+
+            startLatch.countDown();
+
+            int collisions = 0;
+            for (final Future<Integer> future : futures) {
+                collisions += future.get(20, TimeUnit.SECONDS);
+            }
+
+            assertThat(collisions).isZero();
+            assertThat(ids).hasSize(threads * idsPerThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
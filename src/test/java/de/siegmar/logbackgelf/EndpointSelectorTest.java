@@ -0,0 +1,283 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.core.spi.ContextAwareBase;
+
+@SuppressWarnings("PMD.AvoidUsingHardCodedIP")
+class EndpointSelectorTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AppenderMetrics metrics = new AppenderMetrics();
+    private final StatusRecorder status = new StatusRecorder();
+
+    @Test
+    void spreadConnections() throws UnknownHostException {
+        final EndpointSelector selector = newSelector(resolver("a", "10.0.0.1", "10.0.0.2"), resolver("b", "10.0.0.3"));
+        assertThat(selector.isMultiHost()).isTrue();
+
+        final List<String> connected = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            final EndpointSelector.Endpoint endpoint = selector.select();
+            endpoint.connected();
+            connected.add(endpoint.getAddress().getAddress().getHostAddress());
+        }
+
+        assertThat(connected)
+            .containsOnly("10.0.0.1", "10.0.0.2", "10.0.0.3")
+            .filteredOn("10.0.0.3"::equals).hasSize(2);
+    }
+
+    @Test
+    void preferLowLoad() throws UnknownHostException {
+        final EndpointSelector selector = newSelector(resolver("a", "10.0.0.1"), resolver("b", "10.0.0.2"));
+
+        final EndpointSelector.Endpoint slow = selector.select();
+        final EndpointSelector.Endpoint fast = selector.select();
+        slow.connected();
+        fast.connected();
+
+        slow.writeStarted(1000);
+        slow.writeCompleted(1000, TimeUnit.MILLISECONDS.toNanos(100));
+        fast.writeStarted(1000);
+        fast.writeCompleted(1000, TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(slow.load()).isGreaterThan(fast.load());
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(selector.select()).isSameAs(fast);
+        }
+
+        // Unflushed bytes increase the load as well
+        fast.writeStarted(1_000_000);
+        assertThat(selector.select()).isSameAs(slow);
+    }
+
+    @Test
+    void ejection() throws UnknownHostException {
+        final EndpointSelector selector = newSelector(resolver("a", "10.0.0.1"), resolver("b", "10.0.0.2"));
+
+        final EndpointSelector.Endpoint failing = selector.select();
+        final EndpointSelector.Endpoint healthy = selector.select();
+        healthy.connected();
+
+        failing.failed();
+        failing.failed();
+        failing.connected();
+        failing.disconnected(0);
+        failing.failed();
+        failing.failed();
+        assertThat(failing.isEjected()).isFalse();
+
+        failing.failed();
+        assertThat(failing.isEjected()).isTrue();
+        assertThat(metrics.get(GelfTcpAppender.METRIC_ENDPOINT_EJECTIONS)).isOne();
+        assertThat(status.messages)
+            .containsExactly("Ejected tcp://a:12201 (10.0.0.1) for 1000 ms after 3 consecutive failures");
+
+        // Ejected endpoints are avoided even if they have fewer connections
+        healthy.connected();
+        assertThat(selector.select()).isSameAs(healthy);
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertThat(failing.isEjected()).isFalse();
+        assertThat(selector.select()).isSameAs(failing);
+    }
+
+    @Test
+    void allEjected() throws UnknownHostException {
+        final EndpointSelector selector = newSelector(resolver("a", "10.0.0.1"));
+        assertThat(selector.isMultiHost()).isFalse();
+
+        final EndpointSelector.Endpoint endpoint = selector.select();
+        for (int i = 0; i < 3; i++) {
+            endpoint.failed();
+        }
+
+        assertThat(endpoint.isEjected()).isTrue();
+        assertThat(selector.select()).isSameAs(endpoint);
+    }
+
+    @Test
+    void unknownHost() throws UnknownHostException {
+        final EndpointSelector selector = newSelector(failingResolver("a"), resolver("b", "10.0.0.2"));
+        assertThat(selector.select().getHost()).isEqualTo("b");
+
+        final EndpointSelector unresolvable = newSelector(failingResolver("a"));
+        assertThatThrownBy(unresolvable::select)
+            .isInstanceOf(UnknownHostException.class);
+    }
+
+    @Test
+    void sameAddressOfMultipleHosts() throws UnknownHostException {
+        final EndpointSelector selector = newSelector(resolver("a", "10.0.0.1"), resolver("b", "10.0.0.1"));
+
+        final EndpointSelector.Endpoint first = selector.select();
+        first.connected();
+        final EndpointSelector.Endpoint second = selector.select();
+        second.connected();
+
+        // Every host has its own endpoint - TLS verifies the certificate against its hostname
+        assertThat(second).isNotSameAs(first);
+        assertThat(List.of(first.getHost(), second.getHost())).containsExactlyInAnyOrder("a", "b");
+    }
+
+    @Test
+    void addressChange() throws UnknownHostException {
+        final MutableResolver resolver = new MutableResolver("a", "10.0.0.1", "10.0.0.2");
+        final EndpointSelector selector = newSelector(resolver);
+        selector.refresh();
+
+        final List<EndpointSelector.Endpoint> connected = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final EndpointSelector.Endpoint endpoint = selector.select();
+            endpoint.connected();
+            connected.add(endpoint);
+        }
+        final EndpointSelector.Endpoint first = connected.get(0);
+        final EndpointSelector.Endpoint second = connected.get(1);
+        assertThat(selector.shouldMove(first)).isFalse();
+        assertThat(selector.shouldMove(second)).isFalse();
+
+        // Unchanged generation - nothing is removed
+        resolver.update(false, "10.0.0.2", "10.0.0.3");
+        selector.refresh();
+        assertThat(first.isRemoved()).isFalse();
+
+        resolver.update(true, "10.0.0.2", "10.0.0.3");
+        selector.refresh();
+        assertThat(first.isRemoved()).isTrue();
+        assertThat(selector.shouldMove(first)).isTrue();
+
+        // Two connections more than the new endpoint
+        assertThat(second.isRemoved()).isFalse();
+        assertThat(selector.shouldMove(second)).isTrue();
+
+        // Removed endpoints don't get new connections
+        final EndpointSelector.Endpoint third = selector.select();
+        assertThat(third.getAddress().getAddress().getHostAddress()).isEqualTo("10.0.0.3");
+        third.connected();
+        assertThat(selector.shouldMove(second)).isFalse();
+    }
+
+    @Test
+    void rotatingAddressesWithoutCache() throws UnknownHostException {
+        final MutableResolver resolver = new MutableResolver("a", "10.0.0.1");
+        final EndpointSelector selector = newSelector(resolver);
+
+        final EndpointSelector.Endpoint first = selector.select();
+        first.connected();
+
+        // The generation of a resolver without cache never changes
+        resolver.update(false, "10.0.0.2");
+        final EndpointSelector.Endpoint second = selector.select();
+        assertThat(second.getAddress().getAddress().getHostAddress()).isEqualTo("10.0.0.2");
+        assertThat(first.isRemoved()).isTrue();
+
+        // A returning address gets a fresh endpoint
+        resolver.update(false, "10.0.0.1");
+        final EndpointSelector.Endpoint third = selector.select();
+        assertThat(third).isNotSameAs(first);
+        assertThat(third.getConnections()).isZero();
+        assertThat(second.isRemoved()).isTrue();
+    }
+
+    private EndpointSelector newSelector(final AddressResolver... resolvers) {
+        return new EndpointSelector(List.of(resolvers), 12201, 3, 1000, status, metrics, clock::get);
+    }
+
+    private static AddressResolver resolver(final String hostname, final String... ips) {
+        return new AddressResolver(hostname) {
+            @Override
+            InetAddress[] lookup() throws UnknownHostException {
+                final InetAddress[] addresses = new InetAddress[ips.length];
+                for (int i = 0; i < ips.length; i++) {
+                    addresses[i] = InetAddress.getByName(ips[i]);
+                }
+                return addresses;
+            }
+        };
+    }
+
+    private static AddressResolver failingResolver(final String hostname) {
+        return new AddressResolver(hostname) {
+            @Override
+            InetAddress[] lookup() throws UnknownHostException {
+                throw new UnknownHostException(hostname);
+            }
+        };
+    }
+
+    private static final class MutableResolver extends AddressResolver {
+
+        private InetAddress[] addresses;
+        private int generation;
+
+        MutableResolver(final String hostname, final String... ips) throws UnknownHostException {
+            super(hostname);
+            update(true, ips);
+        }
+
+        void update(final boolean changeGeneration, final String... ips) throws UnknownHostException {
+            final InetAddress[] newAddresses = new InetAddress[ips.length];
+            for (int i = 0; i < ips.length; i++) {
+                newAddresses[i] = InetAddress.getByName(ips[i]);
+            }
+            addresses = newAddresses;
+            if (changeGeneration) {
+                generation++;
+            }
+        }
+
+        @Override
+        public InetAddress[] resolveAll() {
+            return addresses;
+        }
+
+        @Override
+        public int getGeneration() {
+            return generation;
+        }
+
+    }
+
+    private static final class StatusRecorder extends ContextAwareBase {
+
+        private final List<String> messages = new ArrayList<>();
+
+        @Override
+        public void addWarn(final String msg) {
+            messages.add(msg);
+        }
+
+    }
+
+}
@@ -22,9 +22,14 @@ package de.siegmar.logbackgelf;
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
 import static com.github.tomakehurst.wiremock.client.WireMock.post;
 import static java.net.HttpURLConnection.HTTP_ACCEPTED;
+import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
 import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.slf4j.LoggerFactory;
@@ -35,6 +40,7 @@ import com.github.tomakehurst.wiremock.matching.RequestPattern;
 
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
+import de.siegmar.logbackgelf.compressor.Compressor;
 
 class GelfHttpAppenderTest {
 
@@ -67,6 +73,52 @@ class GelfHttpAppenderTest {
         );
     }
 
+    @Test
+    void failingCompressorDuringProbe() throws InterruptedException {
+        WIRE_MOCK.stubFor(post("/gelf").willReturn(aResponse().withStatus(HTTP_INTERNAL_ERROR)));
+
+        final AtomicBoolean failCompression = new AtomicBoolean();
+        final GelfHttpAppender gelfAppender = new GelfHttpAppender() {
+            @Override
+            Compressor buildCompressor() {
+                final Compressor compressor = super.buildCompressor();
+                return new Compressor() {
+                    @Override
+                    public byte[] compress(final byte[] binMessage) {
+                        if (failCompression.get()) {
+                            throw new IllegalStateException("Compression failed");
+                        }
+                        return compressor.compress(binMessage);
+                    }
+                };
+            }
+        };
+        final Logger logger = setupLogger(gelfAppender, a -> {
+            a.setMaxRetries(0);
+            a.setCircuitBreakerThreshold(1);
+            a.setCircuitBreakerCoolDown(100);
+        });
+
+        // Opens the circuit
+        logger.error("Test message");
+        assertThat(gelfAppender.getMetrics().get(GelfHttpAppender.METRIC_CIRCUIT_OPENED)).isOne();
+
+        final RequestPattern request = gelfRequest();
+        Thread.sleep(200);
+
+        // Fails after the cool-down time - must not be taken as probe
+        failCompression.set(true);
+        logger.error("Test message");
+
+        failCompression.set(false);
+        logger.error("Probe message");
+
+        stopLogger(logger);
+
+        assertThat(gelfAppender.getMetrics().get(GelfHttpAppender.METRIC_CIRCUIT_STATE)).isZero();
+        assertThatJson(awaitMessage(request)).node("short_message").isEqualTo("Probe message");
+    }
+
     private static RequestPattern gelfRequest() {
         return WIRE_MOCK.stubFor(post("/gelf").willReturn(aResponse().withStatus(HTTP_ACCEPTED)))
             .getRequest();
@@ -78,6 +130,10 @@ class GelfHttpAppenderTest {
     }
 
     private Logger setupLogger() {
+        return setupLogger(new GelfHttpAppender(), a -> { });
+    }
+
+    private Logger setupLogger(final GelfHttpAppender gelfAppender, final Consumer<GelfHttpAppender> customizer) {
         final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
 
         final GelfEncoder gelfEncoder = new GelfEncoder();
@@ -86,18 +142,20 @@ class GelfHttpAppenderTest {
         gelfEncoder.start();
 
         final Logger logger = (Logger) LoggerFactory.getLogger(LOGGER_NAME);
-        logger.addAppender(buildAppender(lc, gelfEncoder));
+        logger.addAppender(buildAppender(gelfAppender, lc, gelfEncoder, customizer));
         logger.setAdditive(false);
 
         return logger;
     }
 
-    private GelfHttpAppender buildAppender(final LoggerContext lc, final GelfEncoder gelfEncoder) {
-        final GelfHttpAppender gelfAppender = new GelfHttpAppender();
+    private GelfHttpAppender buildAppender(final GelfHttpAppender gelfAppender, final LoggerContext lc,
+                                           final GelfEncoder gelfEncoder,
+                                           final Consumer<GelfHttpAppender> customizer) {
         gelfAppender.setContext(lc);
         gelfAppender.setName("GELF");
         gelfAppender.setUri(String.format("http://localhost:%d/gelf", WIRE_MOCK.getPort()));
         gelfAppender.setEncoder(gelfEncoder);
+        customizer.accept(gelfAppender);
         gelfAppender.start();
         return gelfAppender;
     }
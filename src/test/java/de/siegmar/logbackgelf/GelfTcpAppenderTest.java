@@ -21,19 +21,31 @@ package de.siegmar.logbackgelf;
 
 import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
 
 import java.io.Closeable;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import javax.net.SocketFactory;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -45,6 +57,7 @@ import ch.qos.logback.classic.LoggerContext;
 class GelfTcpAppenderTest {
 
     private static final String LOGGER_NAME = GelfTcpAppenderTest.class.getCanonicalName();
+    private static final int SMALL_BUFFER_SIZE = 4096;
 
     private final TcpServer server;
 
@@ -68,10 +81,21 @@ class GelfTcpAppenderTest {
             a -> assertThat(a.getPoolSize()).isEqualTo(2),
             a -> assertThat(a.getPoolMaxWaitTime()).isEqualTo(5000),
             a -> assertThat(a.getReconnectInterval()).isEqualTo(60),
-            a -> assertThat(a.getRetryDelay()).isEqualTo(3000)
+            a -> assertThat(a.getRetryDelay()).isEqualTo(3000),
+            a -> assertThat(a.getLivenessCheckIdleTime()).isZero(),
+            a -> assertThat(a.isGatheringWrites()).isFalse()
         );
     }
 
+    @Test
+    void gatheringWritesSocketFactory() {
+        final GelfTcpAppender appender = new GelfTcpAppender();
+        assertThat(appender.initSocketFactory()).isSameAs(SocketFactory.getDefault());
+
+        appender.setGatheringWrites(true);
+        assertThat(appender.initSocketFactory()).isSameAs(ChannelSocketFactory.INSTANCE);
+    }
+
     @Test
     void simple() throws ExecutionException, InterruptedException, TimeoutException {
         final Logger logger = setupLogger();
@@ -92,7 +116,291 @@ class GelfTcpAppenderTest {
         );
     }
 
+    @Test
+    void restartWithChangedConfiguration() throws ExecutionException, InterruptedException, TimeoutException {
+        final Logger logger = setupLogger(a -> a.setAsyncQueueSize(16));
+        final GelfTcpAppender gelfAppender = (GelfTcpAppender) logger.getAppender("GELF");
+
+        gelfAppender.stop();
+        gelfAppender.setAsyncQueueSize(0);
+        gelfAppender.start();
+
+        // Sent synchronously - not via the dispatcher closed by the previous stop
+        logger.error("Test message");
+
+        stopLogger(logger);
+
+        assertThatJson(awaitMessage()).node("short_message").isEqualTo("Test message");
+    }
+
+    @Test
+    void bufferedWrites() throws ExecutionException, InterruptedException, TimeoutException {
+        final Logger logger = setupLogger(a -> {
+            a.setWriteBufferSize(8192);
+            a.setWriteLinger(50);
+        });
+
+        logger.info("Test message");
+
+        // Buffered messages are flushed on stop
+        stopLogger(logger);
+
+        final String json = awaitMessage();
+        assertThatJson(json).node("short_message").isEqualTo("Test message");
+    }
+
+    @Test
+    void failedBackgroundFlush() throws IOException, InterruptedException {
+        // Server that resets every connection
+        try (ServerSocket resettingServer = new ServerSocket(0)) {
+            final Logger logger = setupLogger(a -> {
+                a.setGraylogPort(resettingServer.getLocalPort());
+                a.setPoolSize(1);
+                a.setWriteBufferSize(8192);
+                a.setWriteLinger(50);
+            });
+
+            final GelfTcpAppender gelfAppender = (GelfTcpAppender) logger.getAppender("GELF");
+
+            logger.info("Test message");
+            try (Socket socket = resettingServer.accept()) {
+                socket.setSoLinger(true, 0);
+            }
+
+            final Instant before = Instant.now();
+            while (gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_SEND_ERRORS) == 0) {
+                assertThat(Duration.between(before, Instant.now())).isLessThan(Duration.ofSeconds(10));
+                Thread.sleep(10);
+            }
+
+            // The broken connection is replaced instead of buffering further messages
+            logger.info("Test message");
+            resettingServer.setSoTimeout(5000);
+            resettingServer.accept().close();
+
+            assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_SEND_ERRORS)).isOne();
+
+            stopLogger(logger);
+        }
+    }
+
+    @Test
+    void asyncWriter() throws ExecutionException, InterruptedException, TimeoutException {
+        final Logger logger = setupLogger(a -> a.setAsyncQueueSize(16));
+
+        logger.error("Test message");
+
+        final GelfTcpAppender gelfAppender = (GelfTcpAppender) logger.getAppender("GELF");
+
+        // Queued messages are sent on stop
+        stopLogger(logger);
+
+        final String json = awaitMessage();
+        assertThatJson(json).node("short_message").isEqualTo("Test message");
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_DROPPED)).isZero();
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_SEND_ERRORS)).isZero();
+    }
+
+    @Test
+    void nioTransport() throws ExecutionException, InterruptedException, TimeoutException {
+        final Logger logger = setupLogger(a -> a.setNioTransport(true));
+
+        logger.error("Test message");
+
+        final GelfTcpAppender gelfAppender = (GelfTcpAppender) logger.getAppender("GELF");
+
+        stopLogger(logger);
+
+        final String json = awaitMessage();
+        assertThatJson(json).node("short_message").isEqualTo("Test message");
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_RECONNECTS)).isOne();
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_SEND_ERRORS)).isZero();
+    }
+
+    @Test
+    void poolWarmUp() throws ExecutionException, InterruptedException, TimeoutException {
+        final Logger logger = setupLogger(a -> {
+            a.setPoolSize(1);
+            a.setPoolWarmUp(true);
+        });
+
+        // The connection is established without any message being logged
+        server.awaitConnection();
+
+        logger.error("Test message");
+
+        stopLogger(logger);
+
+        final String json = awaitMessage();
+        assertThatJson(json).node("short_message").isEqualTo("Test message");
+    }
+
+    @Test
+    void socketFactoryPerHost() throws IOException, InterruptedException {
+        final AtomicInteger factories = new AtomicInteger();
+        final List<Socket> sockets = new ArrayList<>();
+
+        try (ServerSocket multiServer = new ServerSocket(0)) {
+            final CountDownLatch accepted = new CountDownLatch(3);
+            Executors.newSingleThreadExecutor().submit(() -> {
+                while (accepted.getCount() > 0) {
+                    sockets.add(multiServer.accept());
+                    accepted.countDown();
+                }
+                return null;
+            });
+
+            final GelfTcpAppender gelfAppender = new GelfTcpAppender() {
+                @Override
+                protected SocketFactory initSocketFactory(final String host) {
+                    factories.incrementAndGet();
+                    return super.initSocketFactory(host);
+                }
+            };
+            final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
+            final GelfEncoder gelfEncoder = new GelfEncoder();
+            gelfEncoder.setContext(lc);
+            gelfEncoder.start();
+
+            gelfAppender.setContext(lc);
+            gelfAppender.setEncoder(gelfEncoder);
+            gelfAppender.setGraylogHost("localhost");
+            gelfAppender.setGraylogPort(multiServer.getLocalPort());
+            gelfAppender.setPoolSize(3);
+            gelfAppender.setPoolWarmUp(true);
+            gelfAppender.start();
+
+            assertThat(accepted.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(factories).hasValue(1);
+
+            gelfAppender.stop();
+        } finally {
+            for (final Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    void nonBlockingRetry() throws IOException {
+        // Connection refused
+        server.close();
+
+        final Logger logger = setupLogger(a -> {
+            a.setNonBlockingRetry(true);
+            a.setRetryDelay(60_000);
+        });
+
+        final GelfTcpAppender gelfAppender = (GelfTcpAppender) logger.getAppender("GELF");
+
+        final Instant before = Instant.now();
+        logger.error("Test message");
+        assertThat(Duration.between(before, Instant.now())).isLessThan(Duration.ofSeconds(10));
+
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_RETRY_BUFFERED_BYTES)).isPositive();
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_SEND_ERRORS)).isZero();
+
+        stopLogger(logger);
+    }
+
+    @Test
+    void circuitBreaker() throws IOException {
+        // Connection refused
+        server.close();
+
+        final Logger logger = setupLogger(a -> {
+            a.setMaxRetries(0);
+            a.setCircuitBreakerThreshold(2);
+        });
+
+        final GelfTcpAppender gelfAppender = (GelfTcpAppender) logger.getAppender("GELF");
+
+        for (int i = 0; i < 5; i++) {
+            logger.error("Test message");
+        }
+
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_SEND_ERRORS)).isEqualTo(2);
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_CIRCUIT_REJECTED)).isEqualTo(3);
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_CIRCUIT_OPENED)).isOne();
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_CIRCUIT_STATE)).isOne();
+
+        stopLogger(logger);
+    }
+
+    @Test
+    void circuitBreakerAsync() throws IOException, InterruptedException {
+        // Connection refused
+        server.close();
+
+        final Logger logger = setupLogger(a -> {
+            a.setAsyncQueueSize(16);
+            a.setMaxRetries(0);
+            a.setCircuitBreakerThreshold(1);
+        });
+
+        final GelfTcpAppender gelfAppender = (GelfTcpAppender) logger.getAppender("GELF");
+
+        logger.error("Test message");
+        final Instant before = Instant.now();
+        while (gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_SEND_ERRORS) == 0) {
+            assertThat(Duration.between(before, Instant.now())).isLessThan(Duration.ofSeconds(10));
+            Thread.sleep(10);
+        }
+
+        for (int i = 0; i < 3; i++) {
+            logger.error("Test message");
+        }
+
+        // Queued messages are handled on stop
+        stopLogger(logger);
+
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_SEND_ERRORS)).isOne();
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_CIRCUIT_REJECTED)).isEqualTo(3);
+        assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_CIRCUIT_OPENED)).isOne();
+    }
+
+    @Test
+    void writeTimeout() throws IOException {
+        // Server that accepts connections but never reads - with small buffers on both sides
+        try (ServerSocket stalledServer = new ServerSocket()) {
+            stalledServer.setReceiveBufferSize(SMALL_BUFFER_SIZE);
+            stalledServer.bind(new InetSocketAddress("localhost", 0));
+
+            final GelfTcpAppender gelfAppender = new GelfTcpAppender() {
+                @Override
+                protected SocketFactory initSocketFactory(final String host) {
+                    return new SmallSendBufferSocketFactory();
+                }
+            };
+            final Logger logger = setupLogger(gelfAppender, a -> {
+                a.setGraylogPort(stalledServer.getLocalPort());
+                a.setMaxRetries(0);
+                a.setPoolSize(1);
+                a.setWriteTimeout(100);
+            });
+
+            // Exceeds the buffers of both sides - the write stalls until it is aborted
+            final Instant before = Instant.now();
+            logger.error("x".repeat(256 * 1024));
+            assertThat(Duration.between(before, Instant.now())).isLessThan(Duration.ofSeconds(5));
+
+            await().atMost(Duration.ofSeconds(5))
+                .until(() -> gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_WRITE_TIMEOUTS) == 1);
+            assertThat(gelfAppender.getMetrics().get(GelfTcpAppender.METRIC_SEND_ERRORS)).isOne();
+
+            stopLogger(logger);
+        }
+    }
+
     private Logger setupLogger() {
+        return setupLogger(a -> { });
+    }
+
+    private Logger setupLogger(final Consumer<GelfTcpAppender> customizer) {
+        return setupLogger(new GelfTcpAppender(), customizer);
+    }
+
+    private Logger setupLogger(final GelfTcpAppender gelfAppender, final Consumer<GelfTcpAppender> customizer) {
         final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
 
         final GelfEncoder gelfEncoder = new GelfEncoder();
@@ -101,19 +409,21 @@ class GelfTcpAppenderTest {
         gelfEncoder.start();
 
         final Logger logger = (Logger) LoggerFactory.getLogger(LOGGER_NAME);
-        logger.addAppender(buildAppender(lc, gelfEncoder));
+        logger.addAppender(buildAppender(gelfAppender, lc, gelfEncoder, customizer));
         logger.setAdditive(false);
 
         return logger;
     }
 
-    private GelfTcpAppender buildAppender(final LoggerContext lc, final GelfEncoder gelfEncoder) {
-        final GelfTcpAppender gelfAppender = new GelfTcpAppender();
+    private GelfTcpAppender buildAppender(final GelfTcpAppender gelfAppender, final LoggerContext lc,
+                                          final GelfEncoder gelfEncoder,
+                                          final Consumer<GelfTcpAppender> customizer) {
         gelfAppender.setContext(lc);
         gelfAppender.setName("GELF");
         gelfAppender.setEncoder(gelfEncoder);
         gelfAppender.setGraylogHost("localhost");
         gelfAppender.setGraylogPort(server.getPort());
+        customizer.accept(gelfAppender);
         gelfAppender.start();
         return gelfAppender;
     }
@@ -132,9 +442,46 @@ class GelfTcpAppenderTest {
         return new String(data, 0, data.length - 1, StandardCharsets.UTF_8);
     }
 
+    /**
+     * Creates channel-backed sockets with a small send buffer.
+     */
+    private static final class SmallSendBufferSocketFactory extends SocketFactory {
+
+        @Override
+        public Socket createSocket() throws IOException {
+            final Socket socket = ChannelSocketFactory.INSTANCE.createSocket();
+            socket.setSendBufferSize(SMALL_BUFFER_SIZE);
+            return socket;
+        }
+
+        @Override
+        public Socket createSocket(final String host, final int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(final String host, final int port, final InetAddress localHost,
+                                   final int localPort) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress host, final int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress address, final int port, final InetAddress localAddress,
+                                   final int localPort) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
     private static final class TcpServer implements Closeable {
 
         private final ServerSocket socket;
+        private final CountDownLatch connected = new CountDownLatch(1);
         private final Future<byte[]> receivedMessage;
 
         TcpServer() throws IOException {
@@ -152,8 +499,15 @@ class GelfTcpAppenderTest {
             return receivedMessage;
         }
 
+        void awaitConnection() throws InterruptedException, TimeoutException {
+            if (!connected.await(5, TimeUnit.SECONDS)) {
+                throw new TimeoutException("No connection established");
+            }
+        }
+
         private byte[] receive() {
             try (Socket socket = this.socket.accept()) {
+                connected.countDown();
                 try (DataInputStream in = new DataInputStream(socket.getInputStream())) {
                     return in.readAllBytes();
                 }
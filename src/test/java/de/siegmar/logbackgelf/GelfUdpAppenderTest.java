@@ -20,6 +20,8 @@
 package de.siegmar.logbackgelf;
 
 import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -29,7 +31,11 @@ import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketAddress;
 import java.net.SocketException;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.concurrent.ExecutionException;
@@ -37,10 +43,13 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.InflaterOutputStream;
 
 import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
@@ -87,7 +96,168 @@ class GelfUdpAppenderTest {
         );
     }
 
+    @Timeout(3)
+    @Test
+    void connectedChannel() throws ExecutionException, InterruptedException, TimeoutException {
+        final Logger logger = setupLogger(CompressionMethod.GZIP, a -> a.setConnectChannel(true));
+
+        logger.error("Test message");
+
+        final GelfUdpAppender gelfAppender = (GelfUdpAppender) logger.getAppender("GELF");
+        assertThat(gelfAppender.getMetrics().get(GelfUdpAppender.METRIC_RECONNECTS)).isOne();
+
+        stopLogger(logger);
+
+        final String json = awaitMessage(CompressionMethod.GZIP);
+        assertThatJson(json).node("short_message").isEqualTo("Test message");
+    }
+
+    @Timeout(3)
+    @Test
+    void connectedChannelWithoutDnsCache() throws ExecutionException, InterruptedException, TimeoutException {
+        final AtomicInteger lookups = new AtomicInteger();
+        final GelfUdpAppender appender = new GelfUdpAppender() {
+            @Override
+            AddressResolver newAddressResolver() {
+                return new AddressResolver(getGraylogHost()) {
+                    @Override
+                    InetAddress[] lookup() throws UnknownHostException {
+                        lookups.incrementAndGet();
+                        return super.lookup();
+                    }
+                };
+            }
+        };
+        final Logger logger = setupLogger(appender, CompressionMethod.GZIP, a -> a.setConnectChannel(true));
+
+        logger.error("Test message 1");
+        logger.error("Test message 2");
+        logger.error("Test message 3");
+
+        stopLogger(logger);
+
+        // The address is resolved only once without DNS cache
+        assertThat(lookups).hasValue(1);
+        assertThatJson(awaitMessage(CompressionMethod.GZIP)).node("short_message").isEqualTo("Test message 1");
+    }
+
+    @Timeout(3)
+    @Test
+    void channelStripes() throws ExecutionException, InterruptedException, TimeoutException {
+        final Logger logger = setupLogger(CompressionMethod.GZIP, a -> a.setChannelStripes(4));
+
+        logger.error("Test message");
+
+        stopLogger(logger);
+
+        final String json = awaitMessage(CompressionMethod.GZIP);
+        assertThatJson(json).node("short_message").isEqualTo("Test message");
+    }
+
+    @Timeout(3)
+    @Test
+    void asyncSender() throws ExecutionException, InterruptedException, TimeoutException {
+        final Logger logger = setupLogger(CompressionMethod.GZIP, a -> a.setAsyncQueueSize(16));
+
+        logger.error("Test message");
+
+        final GelfUdpAppender gelfAppender = (GelfUdpAppender) logger.getAppender("GELF");
+
+        final String json = awaitMessage(CompressionMethod.GZIP);
+        assertThatJson(json).node("short_message").isEqualTo("Test message");
+
+        stopLogger(logger);
+
+        assertThat(gelfAppender.getMetrics().get(GelfUdpAppender.METRIC_QUEUE_DEPTH)).isZero();
+        assertThat(gelfAppender.getMetrics().get(GelfUdpAppender.METRIC_DROPPED)).isZero();
+    }
+
+    @Timeout(5)
+    @Test
+    void nonBlockingSendBufferFullDrop() {
+        final GelfUdpAppender gelfAppender = fullSendBufferAppender();
+        final Logger logger = setupLogger(gelfAppender, CompressionMethod.GZIP, a -> {
+            a.setNonBlocking(true);
+            a.setSendBufferSize(4096);
+            a.setSendBufferFullPolicy(SendBufferFullPolicy.DROP);
+        });
+
+        assertThat(gelfAppender.getMetrics().get(GelfUdpAppender.METRIC_SEND_BUFFER_SIZE)).isPositive();
+
+        for (int i = 0; i < 3; i++) {
+            logger.error("Test message");
+        }
+
+        stopLogger(logger);
+
+        assertThat(gelfAppender.getMetrics().get(GelfUdpAppender.METRIC_SEND_BUFFER_FULL)).isEqualTo(3);
+        assertThat(gelfAppender.getMetrics().get(GelfUdpAppender.METRIC_SEND_ERRORS)).isZero();
+    }
+
+    @Timeout(5)
+    @Test
+    void nonBlockingSendBufferFullWait() {
+        final GelfUdpAppender gelfAppender = fullSendBufferAppender();
+        final Logger logger = setupLogger(gelfAppender, CompressionMethod.GZIP, a -> {
+            a.setNonBlocking(true);
+            a.setSendBufferFullPolicy(SendBufferFullPolicy.WAIT);
+            a.setSendBufferFullTimeout(200);
+        });
+
+        final long start = System.nanoTime();
+        logger.error("Test message");
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        stopLogger(logger);
+
+        assertThat(elapsed).isBetween(150L, 2000L);
+        assertThat(gelfAppender.getMetrics().get(GelfUdpAppender.METRIC_SEND_BUFFER_FULL)).isOne();
+        assertThat(gelfAppender.getMetrics().get(GelfUdpAppender.METRIC_SEND_ERRORS)).isZero();
+    }
+
+    /**
+     * Creates an appender whose channels act like their send buffer is always full - a slow
+     * receiver can't cause this via loopback, as datagrams are passed on (or dropped) immediately.
+     */
+    private static GelfUdpAppender fullSendBufferAppender() {
+        return new GelfUdpAppender() {
+            @Override
+            RobustChannel newChannel() throws IOException {
+                return new RobustChannel(getMetrics(), true, getSendBufferSize()) {
+                    @Override
+                    int send(final ByteBuffer src, final SocketAddress target) {
+                        return 0;
+                    }
+
+                    @Override
+                    int write(final ByteBuffer src) {
+                        return 0;
+                    }
+                };
+            }
+        };
+    }
+
+    @Test
+    void stopAfterFailedStart() {
+        final Logger logger = setupLogger(CompressionMethod.GZIP, a -> a.setChannelStripes(0));
+
+        final GelfUdpAppender gelfAppender = (GelfUdpAppender) logger.getAppender("GELF");
+        assertThat(gelfAppender.isStarted()).isFalse();
+        assertThatCode(gelfAppender::stop).doesNotThrowAnyException();
+    }
+
     private Logger setupLogger(final CompressionMethod compressionMethod) {
+        return setupLogger(compressionMethod, a -> { });
+    }
+
+    private Logger setupLogger(final CompressionMethod compressionMethod,
+                               final Consumer<GelfUdpAppender> customizer) {
+        return setupLogger(new GelfUdpAppender(), compressionMethod, customizer);
+    }
+
+    private Logger setupLogger(final GelfUdpAppender gelfAppender, final CompressionMethod compressionMethod,
+                               final Consumer<GelfUdpAppender> customizer) {
         final LoggerContext lc = (LoggerContext) LoggerFactory.getILoggerFactory();
 
         final GelfEncoder gelfEncoder = new GelfEncoder();
@@ -96,22 +266,24 @@ class GelfUdpAppenderTest {
         gelfEncoder.start();
 
         final Logger logger = (Logger) LoggerFactory.getLogger(LOGGER_NAME);
-        logger.addAppender(buildAppender(compressionMethod, lc, gelfEncoder));
+        logger.addAppender(buildAppender(gelfAppender, compressionMethod, lc, gelfEncoder, customizer));
         logger.setAdditive(false);
 
         return logger;
     }
 
-    private GelfUdpAppender buildAppender(final CompressionMethod compressionMethod,
+    private GelfUdpAppender buildAppender(final GelfUdpAppender gelfAppender,
+                                          final CompressionMethod compressionMethod,
                                           final LoggerContext lc,
-                                          final GelfEncoder gelfEncoder) {
-        final GelfUdpAppender gelfAppender = new GelfUdpAppender();
+                                          final GelfEncoder gelfEncoder,
+                                          final Consumer<GelfUdpAppender> customizer) {
         gelfAppender.setContext(lc);
         gelfAppender.setName("GELF");
         gelfAppender.setEncoder(gelfEncoder);
         gelfAppender.setGraylogHost("localhost");
         gelfAppender.setGraylogPort(server.getPort());
         gelfAppender.setCompressionMethod(compressionMethod);
+        customizer.accept(gelfAppender);
         gelfAppender.start();
         return gelfAppender;
     }
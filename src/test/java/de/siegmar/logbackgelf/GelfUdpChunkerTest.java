@@ -22,53 +22,89 @@ package de.siegmar.logbackgelf;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
-import java.util.Iterator;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import de.siegmar.logbackgelf.compressor.Compressor;
+
 @SuppressWarnings("PMD.AvoidDuplicateLiterals")
 class GelfUdpChunkerTest {
 
+    private static final Compressor NO_COMPRESSION = CompressionMethod.NONE.getCompressor();
+
+    private final GelfUdpChunkBuffer buffer = new GelfUdpChunkBuffer();
+
     @Test
-    void singleChunk() {
+    void singleChunk() throws IOException {
         final GelfUdpChunker chunker = new GelfUdpChunker(new MessageIdSupplier(), null);
-        final Iterator<? extends ByteBuffer> chunks =
-            chunker.chunks("hello".getBytes(StandardCharsets.UTF_8)).iterator();
-        assertThat(chunks.next().array()).asString().isEqualTo("hello");
-        assertThat(chunks).isExhausted();
+        chunker.chunk("hello".getBytes(StandardCharsets.UTF_8), NO_COMPRESSION, buffer);
+        assertThat(buffer.getChunkCount()).isEqualTo(1);
+        assertThat(toBytes(buffer.chunk(0))).asString().isEqualTo("hello");
     }
 
     @Test
-    void multipleChunks() {
+    void multipleChunks() throws IOException {
         final GelfUdpChunker chunker = new GelfUdpChunker(new MessageIdSupplier(), 13);
-        final Iterator<? extends ByteBuffer> chunks =
-            chunker.chunks("hello".getBytes(StandardCharsets.UTF_8)).iterator();
-        expectedChunk(chunks.next().array(), 0, 5, 'h');
-        expectedChunk(chunks.next().array(), 1, 5, 'e');
-        expectedChunk(chunks.next().array(), 2, 5, 'l');
-        expectedChunk(chunks.next().array(), 3, 5, 'l');
-        expectedChunk(chunks.next().array(), 4, 5, 'o');
-        assertThat(chunks).isExhausted();
+        chunker.chunk("hello".getBytes(StandardCharsets.UTF_8), NO_COMPRESSION, buffer);
+        assertThat(buffer.getChunkCount()).isEqualTo(5);
+        expectedChunk(toBytes(buffer.chunk(0)), 0, 5, 'h');
+        expectedChunk(toBytes(buffer.chunk(1)), 1, 5, 'e');
+        expectedChunk(toBytes(buffer.chunk(2)), 2, 5, 'l');
+        expectedChunk(toBytes(buffer.chunk(3)), 3, 5, 'l');
+        expectedChunk(toBytes(buffer.chunk(4)), 4, 5, 'o');
     }
 
     private void expectedChunk(final byte[] data, final int chunkNo, final int chunkCount, final char payload) {
         assertThat(data)
+            .hasSize(13)
             .startsWith(0x1e, 0x0f)
             .endsWith(chunkNo, chunkCount, payload);
     }
 
     @Test
-    void removeNotPermitted() {
+    void sameMessageIdForAllChunks() throws IOException {
+        final GelfUdpChunker chunker = new GelfUdpChunker(() -> 0x0102_0304_0506_0708L, 13);
+        chunker.chunk("hi".getBytes(StandardCharsets.UTF_8), NO_COMPRESSION, buffer);
+        assertThat(toBytes(buffer.chunk(0))).containsExactly(0x1e, 0x0f, 1, 2, 3, 4, 5, 6, 7, 8, 0, 2, 'h');
+        assertThat(toBytes(buffer.chunk(1))).containsExactly(0x1e, 0x0f, 1, 2, 3, 4, 5, 6, 7, 8, 1, 2, 'i');
+    }
+
+    @Test
+    void largerChunksIfMaxChunksExceeded() throws IOException {
         final GelfUdpChunker chunker = new GelfUdpChunker(new MessageIdSupplier(), 13);
-        final Iterator<? extends ByteBuffer> chunks =
-            chunker.chunks("hello".getBytes(StandardCharsets.UTF_8)).iterator();
+        chunker.chunk(new byte[200], NO_COMPRESSION, buffer);
+        assertThat(buffer.getChunkCount()).isEqualTo(1);
+        assertThat(toBytes(buffer.chunk(0))).hasSize(200);
+    }
+
+    @Test
+    void bufferReuse() throws IOException {
+        final GelfUdpChunker chunker = new GelfUdpChunker(new MessageIdSupplier(), 13);
+        chunker.chunk("hello".getBytes(StandardCharsets.UTF_8), NO_COMPRESSION, buffer);
+        chunker.chunk("a".getBytes(StandardCharsets.UTF_8), NO_COMPRESSION, buffer);
+        assertThat(buffer.getChunkCount()).isEqualTo(1);
+        assertThat(toBytes(buffer.chunk(0))).asString().isEqualTo("a");
+    }
+
+    @Test
+    void bufferReuseAfterLargerChunks() throws IOException {
+        final GelfUdpChunker chunker = new GelfUdpChunker(new MessageIdSupplier(), 13);
+        chunker.chunk(new byte[200], NO_COMPRESSION, buffer);
+        chunker.chunk("hello".getBytes(StandardCharsets.UTF_8), NO_COMPRESSION, buffer);
+        assertThat(buffer.getChunkCount()).isEqualTo(5);
+        expectedChunk(toBytes(buffer.chunk(0)), 0, 5, 'h');
+        expectedChunk(toBytes(buffer.chunk(4)), 4, 5, 'o');
+    }
 
-        assertThatThrownBy(chunks::remove)
-            .isInstanceOf(UnsupportedOperationException.class);
+    private static byte[] toBytes(final ByteBuffer byteBuffer) {
+        final byte[] data = new byte[byteBuffer.remaining()];
+        byteBuffer.get(data);
+        return data;
     }
 
     @ParameterizedTest
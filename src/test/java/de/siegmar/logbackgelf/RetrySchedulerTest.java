@@ -0,0 +1,115 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class RetrySchedulerTest {
+
+    @Test
+    void backoff() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(RetryScheduler.backoff(100, 1000, 1)).isBetween(50L, 100L);
+            assertThat(RetryScheduler.backoff(100, 1000, 2)).isBetween(100L, 200L);
+            assertThat(RetryScheduler.backoff(100, 1000, 3)).isBetween(200L, 400L);
+            assertThat(RetryScheduler.backoff(100, 1000, 5)).isBetween(500L, 1000L);
+            assertThat(RetryScheduler.backoff(100, 1000, 100)).isBetween(500L, 1000L);
+        }
+    }
+
+    @Test
+    void retryUntilSuccess() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<Exception> failures = new CopyOnWriteArrayList<>();
+
+        final RetryScheduler scheduler = new RetryScheduler("test", 5, 1, 10, 1024, m -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IOException("Connection refused");
+            }
+        }, failures::add);
+
+        try {
+            assertThat(scheduler.schedule(new byte[100])).isTrue();
+            assertThat(scheduler.getBufferedBytes()).isEqualTo(100);
+
+            await().until(() -> scheduler.getBufferedBytes() == 0);
+            assertThat(attempts).hasValue(3);
+            assertThat(failures).isEmpty();
+        } finally {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    void retriesExhausted() {
+        final AtomicInteger attempts = new AtomicInteger();
+        final List<Exception> failures = new CopyOnWriteArrayList<>();
+
+        final RetryScheduler scheduler = new RetryScheduler("test", 3, 1, 10, 1024, m -> {
+            attempts.incrementAndGet();
+            throw new IOException("Connection refused");
+        }, failures::add);
+
+        try {
+            assertThat(scheduler.schedule(new byte[100])).isTrue();
+
+            await().until(() -> !failures.isEmpty());
+            assertThat(attempts).hasValue(3);
+            assertThat(failures).singleElement().isInstanceOf(IOException.class);
+            assertThat(scheduler.getBufferedBytes()).isZero();
+        } finally {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    void bufferFull() {
+        final RetryScheduler scheduler = new RetryScheduler("test", 1, 60_000, 60_000, 150, m -> { },
+            e -> { });
+
+        try {
+            assertThat(scheduler.schedule(new byte[100])).isTrue();
+            assertThat(scheduler.schedule(new byte[100])).isFalse();
+            assertThat(scheduler.schedule(new byte[50])).isTrue();
+            assertThat(scheduler.getBufferedBytes()).isEqualTo(150);
+        } finally {
+            assertThat(scheduler.close()).isEqualTo(2);
+        }
+
+        assertThat(scheduler.schedule(new byte[1])).isFalse();
+    }
+
+    @Test
+    void validateMaxRetries() {
+        assertThatThrownBy(() -> new RetryScheduler("test", 0, 1, 1, 1, m -> { }, e -> { }))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("maxRetries must be > 0");
+    }
+
+}
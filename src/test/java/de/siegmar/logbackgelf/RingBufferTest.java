@@ -0,0 +1,125 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class RingBufferTest {
+
+    @Test
+    void capacityRoundedUp() {
+        assertThat(new RingBuffer<>(1).capacity()).isEqualTo(1);
+        assertThat(new RingBuffer<>(5).capacity()).isEqualTo(8);
+        assertThat(new RingBuffer<>(64).capacity()).isEqualTo(64);
+
+        assertThatThrownBy(() -> new RingBuffer<>(0))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("capacity must be > 0");
+    }
+
+    @Test
+    void fifo() {
+        final RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        assertThat(buffer.isEmpty()).isTrue();
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        assertThat(buffer.offer(4)).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.poll()).isEqualTo(i);
+        }
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+    @Test
+    void wrapAround() {
+        final RingBuffer<Integer> buffer = new RingBuffer<>(2);
+        for (int i = 0; i < 10; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+            assertThat(buffer.poll()).isEqualTo(i);
+        }
+    }
+
+    @Timeout(10)
+    @Test
+    void multipleProducersAndConsumers() throws Exception {
+        final int threads = 4;
+        final int perThread = 10_000;
+        final RingBuffer<Integer> buffer = new RingBuffer<>(128);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads * 2);
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final ConcurrentHashMap<Integer, Boolean> received = new ConcurrentHashMap<>();
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int base = t * perThread;
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    for (int i = 0; i < perThread; i++) {
+                        while (!buffer.offer(base + i)) {
+                            Thread.onSpinWait();
+                        }
+                    }
+                    return null;
+                }));
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    for (int i = 0; i < perThread; i++) {
+                        Integer value;
+                        while ((value = buffer.poll()) == null) {
+                            Thread.onSpinWait();
+                        }
+                        assertThat(received.put(value, Boolean.TRUE)).isNull();
+                    }
+                    return null;
+                }));
+            }
+
+            startLatch.countDown();
+            for (final Future<?> future : futures) {
+                future.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(received).hasSize(threads * perThread);
+        assertThat(buffer.isEmpty()).isTrue();
+    }
+
+}
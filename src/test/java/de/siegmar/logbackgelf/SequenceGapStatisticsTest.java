@@ -0,0 +1,155 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class SequenceGapStatisticsTest {
+
+    @Test
+    void noLoss() {
+        final SequenceGapStatistics stats = new SequenceGapStatistics();
+        for (long i = 0; i < 100; i++) {
+            stats.add("a", i);
+        }
+
+        final SequenceGapStatistics.SenderStatistics sender = stats.getSenders().get("a");
+        assertThat(sender.getReceived()).isEqualTo(100);
+        assertThat(sender.getExpected()).isEqualTo(100);
+        assertThat(sender.getMissing()).isZero();
+        assertThat(sender.getGaps()).isZero();
+        assertThat(sender.getLossRate()).isZero();
+    }
+
+    @Test
+    void gaps() {
+        final SequenceGapStatistics stats = new SequenceGapStatistics();
+        for (final long seq : new long[]{0, 1, 4, 5, 6, 9}) {
+            stats.add("a", seq);
+        }
+
+        final SequenceGapStatistics.SenderStatistics sender = stats.getSenders().get("a");
+        assertThat(sender.getFirstSeq()).isZero();
+        assertThat(sender.getLastSeq()).isEqualTo(9);
+        assertThat(sender.getExpected()).isEqualTo(10);
+        assertThat(sender.getMissing()).isEqualTo(4);
+        assertThat(sender.getGaps()).isEqualTo(2);
+        assertThat(sender.getLossRate()).isCloseTo(0.4, within(0.0001));
+    }
+
+    @Test
+    void duplicatesAndReordering() {
+        final SequenceGapStatistics stats = new SequenceGapStatistics();
+        for (final long seq : new long[]{5, 7, 6, 7, 3, 4}) {
+            stats.add("a", seq);
+        }
+
+        final SequenceGapStatistics.SenderStatistics sender = stats.getSenders().get("a");
+        assertThat(sender.getReceived()).isEqualTo(6);
+        assertThat(sender.getDuplicates()).isOne();
+        assertThat(sender.getReordered()).isEqualTo(3);
+        assertThat(sender.getFirstSeq()).isEqualTo(3);
+        assertThat(sender.getMissing()).isZero();
+    }
+
+    @Test
+    void hugeGaps() {
+        final SequenceGapStatistics stats = new SequenceGapStatistics();
+        for (final long seq : new long[]{0, Long.MAX_VALUE / 2, 5, Long.MAX_VALUE - 1}) {
+            stats.add("a", seq);
+        }
+
+        final SequenceGapStatistics.SenderStatistics sender = stats.getSenders().get("a");
+        assertThat(sender.getFirstSeq()).isZero();
+        assertThat(sender.getLastSeq()).isEqualTo(Long.MAX_VALUE - 1);
+        assertThat(sender.getReceived()).isEqualTo(4);
+        assertThat(sender.getMissing()).isEqualTo(Long.MAX_VALUE - 3);
+        assertThat(sender.getGaps()).isEqualTo(2);
+
+        // Too old to be tracked
+        assertThat(sender.getReordered()).isOne();
+    }
+
+    @Test
+    void slidingWindow() {
+        final long end = 3L * SequenceGapStatistics.WINDOW_SIZE;
+        final Set<Long> missing = Set.of(10L, 11L, SequenceGapStatistics.WINDOW_SIZE * 2L - 1,
+            SequenceGapStatistics.WINDOW_SIZE * 2L, end - 5);
+
+        final SequenceGapStatistics stats = new SequenceGapStatistics();
+        for (long seq = 0; seq < end; seq++) {
+            if (!missing.contains(seq)) {
+                stats.add("a", seq);
+            }
+        }
+
+        // Recent sequence numbers are still checked for duplicates
+        stats.add("a", end - 2);
+
+        final SequenceGapStatistics.SenderStatistics sender = stats.getSenders().get("a");
+        assertThat(sender.getExpected()).isEqualTo(end);
+        assertThat(sender.getMissing()).isEqualTo(5);
+        assertThat(sender.getGaps()).isEqualTo(3);
+        assertThat(sender.getDuplicates()).isOne();
+    }
+
+    @Test
+    void parseMessages() {
+        final SequenceGapStatistics stats = new SequenceGapStatistics();
+        assertThat(stats.add("{\"short_message\":\"foo\",\"_sender_id\":\"a\",\"_seq\":0}")).isTrue();
+        assertThat(stats.add("{\"short_message\":\"foo\",\"_sender_id\":\"b\",\"_seq\":0}")).isTrue();
+        assertThat(stats.add("{\"short_message\":\"foo\",\"_sender_id\":\"a\",\"_seq\":2}")).isTrue();
+        assertThat(stats.add("{\"short_message\":\"foo\"}")).isFalse();
+
+        assertThat(stats.getSenders()).containsOnlyKeys("a", "b");
+        assertThat(stats.getSenders().get("a").getMissing()).isOne();
+        assertThat(stats.getSenders().get("b").getMissing()).isZero();
+    }
+
+    @Test
+    void parseMalformedMessages() {
+        final SequenceGapStatistics stats = new SequenceGapStatistics();
+        assertThat(stats.add("{\"_sender_id\":\"a\",\"_seq\":\"x\"}")).isFalse();
+        assertThat(stats.add("{\"_sender_id\":\"a\",\"_seq\":}")).isFalse();
+        assertThat(stats.add("{\"_sender_id\":\"a\",\"_seq\":99999999999999999999}")).isFalse();
+        assertThat(stats.add("{\"_sender_id\":\"a\",\"_seq\":9999999999999999999}")).isFalse();
+        assertThat(stats.add("{\"_sender_id\":\"a\"")).isFalse();
+        assertThat(stats.getSenders()).isEmpty();
+    }
+
+    @Test
+    void parseFieldsInValues() {
+        final SequenceGapStatistics stats = new SequenceGapStatistics();
+        assertThat(stats.add("{\"short_message\":\"\\\"_sender_id\\\":\\\"x\\\",\\\"_seq\\\":5\"}")).isFalse();
+        assertThat(stats.add("{\"short_message\":\"\\\"_seq\\\":7\",\"_sender_id\":\"a\",\"_seq\":3}"))
+            .isTrue();
+        assertThat(stats.add("{\"_sender_id\":\"b\",\"_seq\":4}")).isTrue();
+
+        assertThat(stats.getSenders()).containsOnlyKeys("a", "b");
+        assertThat(stats.getSenders().get("a").getFirstSeq()).isEqualTo(3);
+        assertThat(stats.getSenders().get("b").getFirstSeq()).isEqualTo(4);
+    }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class SequenceStamperTest {
+
+    @Test
+    void stamp() {
+        final SequenceStamper stamper = new SequenceStamper("app-1");
+
+        assertThat(stamp(stamper, "{\"version\":\"1.1\"}"))
+            .isEqualTo("{\"version\":\"1.1\",\"_sender_id\":\"app-1\",\"_seq\":0}");
+        assertThat(stamp(stamper, "{\"version\":\"1.1\"}\n"))
+            .isEqualTo("{\"version\":\"1.1\",\"_sender_id\":\"app-1\",\"_seq\":1}\n");
+    }
+
+    @Test
+    void multipleDigits() {
+        final SequenceStamper stamper = new SequenceStamper("app-1");
+        for (int i = 0; i < 1234; i++) {
+            stamper.stamp(new byte[]{'{', '}'});
+        }
+
+        assertThat(stamp(stamper, "{\"a\":1}"))
+            .isEqualTo("{\"a\":1,\"_sender_id\":\"app-1\",\"_seq\":1234}");
+    }
+
+    @Test
+    void emptyObject() {
+        final SequenceStamper stamper = new SequenceStamper("app-1");
+
+        assertThat(stamp(stamper, "{}"))
+            .isEqualTo("{\"_sender_id\":\"app-1\",\"_seq\":0}");
+        assertThat(stamp(stamper, "{ }\n"))
+            .isEqualTo("{ \"_sender_id\":\"app-1\",\"_seq\":1}\n");
+    }
+
+    @Test
+    void disabled() {
+        assertThat(stamp(SequenceStamper.create(false, "app-1"), "{\"a\":1}")).isEqualTo("{\"a\":1}");
+        assertThat(stamp(SequenceStamper.create(true, "app-1"), "{\"a\":1}"))
+            .isEqualTo("{\"a\":1,\"_sender_id\":\"app-1\",\"_seq\":0}");
+    }
+
+    @Test
+    void randomSenderId() {
+        assertThat(stamp(new SequenceStamper(null), "{\"a\":1}"))
+            .matches("\\{\"a\":1,\"_sender_id\":\"[0-9a-f]+\",\"_seq\":0}");
+    }
+
+    @Test
+    void nonJson() {
+        final SequenceStamper stamper = new SequenceStamper("app-1");
+        assertThat(stamp(stamper, "plain text")).isEqualTo("plain text");
+    }
+
+    @Test
+    void invalidSenderId() {
+        assertThatThrownBy(() -> new SequenceStamper("a\"b"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> SequenceStamper.create(true, "a b"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThat(SequenceStamper.create(false, "a b")).isNotNull();
+    }
+
+    private static String stamp(final SequenceStamper stamper, final String message) {
+        return new String(stamper.stamp(message.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,166 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.net.SocketFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import ch.qos.logback.core.spi.ContextAwareBase;
+
+class TcpConnectionTest {
+
+    private final ServerSocket server;
+    private final EndpointSelector endpointSelector;
+
+    TcpConnectionTest() throws IOException {
+        server = new ServerSocket(0);
+        endpointSelector = new EndpointSelector(List.of(new AddressResolver("localhost")), server.getLocalPort(),
+            3, 1000, new ContextAwareBase(), new AppenderMetrics());
+    }
+
+    @AfterEach
+    void after() throws IOException {
+        server.close();
+    }
+
+    @Test
+    void channelSocket() throws IOException {
+        try (Socket socket = ChannelSocketFactory.INSTANCE.createSocket()) {
+            assertThat(socket.getChannel()).isNotNull();
+        }
+    }
+
+    @Test
+    void gatheringWrites() throws IOException {
+        final TcpConnection connection = newConnection(host -> ChannelSocketFactory.INSTANCE);
+
+        // Single message with its terminator and a batch of messages interleaved with terminators
+        connection.write(bytes("foo"));
+        connection.write(List.of(bytes("bar"), bytes(""), bytes("baz")), true);
+
+        final byte[] expected = bytes("foo\0bar\0\0baz\0");
+        assertThat(receive(connection, expected.length)).isEqualTo(expected);
+    }
+
+    @Test
+    void coalescedWrites() throws IOException {
+        final CountingSocketFactory socketFactory = new CountingSocketFactory();
+        final TcpConnection connection = newConnection(host -> socketFactory);
+
+        connection.write(bytes("foo"));
+        assertThat(socketFactory.writes).isOne();
+
+        connection.write(List.of(bytes("bar"), bytes("baz")), true);
+        assertThat(socketFactory.writes).isEqualTo(2);
+
+        // A message larger than the buffer is written directly, followed by its terminator
+        final byte[] large = new byte[32 * 1024];
+        connection.write(large);
+        assertThat(socketFactory.writes).isEqualTo(4);
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(bytes("foo\0bar\0baz\0"));
+        expected.write(large);
+        expected.write(0);
+        assertThat(receive(connection, expected.size())).isEqualTo(expected.toByteArray());
+    }
+
+    private TcpConnection newConnection(final Function<String, SocketFactory> socketFactory) {
+        return new TcpConnection(socketFactory, endpointSelector, 1000, 5000, 0, 0);
+    }
+
+    private byte[] receive(final TcpConnection connection, final int length) throws IOException {
+        try (Socket socket = server.accept(); InputStream in = socket.getInputStream()) {
+            socket.setSoTimeout(5000);
+            final byte[] data = in.readNBytes(length);
+            connection.close();
+            assertThat(in.read()).isEqualTo(-1);
+            return data;
+        }
+    }
+
+    private static byte[] bytes(final String str) {
+        return str.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates plain sockets (without channel) that count the writes to their output stream.
+     */
+    private static final class CountingSocketFactory extends SocketFactory {
+
+        private int writes;
+
+        @Override
+        public Socket createSocket() {
+            return new Socket() {
+                @Override
+                public OutputStream getOutputStream() throws IOException {
+                    return new FilterOutputStream(super.getOutputStream()) {
+                        @Override
+                        public void write(final byte[] b, final int off, final int len) throws IOException {
+                            writes++;
+                            out.write(b, off, len);
+                        }
+                    };
+                }
+            };
+        }
+
+        @Override
+        public Socket createSocket(final String host, final int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(final String host, final int port, final InetAddress localHost,
+                                   final int localPort) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress host, final int port) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress address, final int port,
+                                   final InetAddress localAddress, final int localPort) {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void sustainedRate() {
+        final TokenBucket bucket = new TokenBucket(1000, 0, clock::get);
+
+        assertThat(bucket.reserve(10, Long.MAX_VALUE)).isZero();
+        assertThat(bucket.reserve(10, Long.MAX_VALUE)).isEqualTo(10 * MS);
+        assertThat(bucket.reserve(10, Long.MAX_VALUE)).isEqualTo(20 * MS);
+
+        clock.set(30 * MS);
+        assertThat(bucket.reserve(10, Long.MAX_VALUE)).isZero();
+    }
+
+    @Test
+    void burst() {
+        final TokenBucket bucket = new TokenBucket(1000, 5 * MS, clock::get);
+
+        for (int i = 0; i < 6; i++) {
+            assertThat(bucket.reserve(1, Long.MAX_VALUE)).isZero();
+        }
+        assertThat(bucket.reserve(1, Long.MAX_VALUE)).isEqualTo(MS);
+    }
+
+    @Test
+    void maxDelay() {
+        final TokenBucket bucket = new TokenBucket(1000, 0, clock::get);
+
+        assertThat(bucket.reserve(100, 50 * MS)).isZero();
+        assertThat(bucket.reserve(1, 50 * MS)).isEqualTo(-1);
+
+        // Rejected reservation must not consume tokens
+        clock.set(100 * MS);
+        assertThat(bucket.reserve(1, 0)).isZero();
+    }
+
+    @Test
+    void cancel() {
+        final TokenBucket bucket = new TokenBucket(1000, 0, clock::get);
+
+        assertThat(bucket.reserve(100, Long.MAX_VALUE)).isZero();
+        bucket.cancel(100);
+        assertThat(bucket.reserve(1, 0)).isZero();
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf.compressor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ParallelGZIPCompressorTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    void after() {
+        pool.shutdown();
+    }
+
+    @Test
+    void belowThreshold() throws IOException {
+        final ParallelGZIPCompressor compressor = new ParallelGZIPCompressor(pool, 1000, 10);
+        final byte[] data = message(999);
+
+        final byte[] compressed = compressor.compress(data);
+
+        assertThat(countMembers(compressed)).isEqualTo(1);
+        assertThat(decompress(compressed)).isEqualTo(data);
+    }
+
+    @Test
+    void multipleMembers() throws IOException {
+        final ParallelGZIPCompressor compressor = new ParallelGZIPCompressor(pool, 0, 100);
+        final byte[] data = message(1050);
+
+        final byte[] compressed = compressor.compress(data);
+
+        assertThat(countMembers(compressed)).isEqualTo(11);
+        assertThat(decompress(compressed)).isEqualTo(data);
+    }
+
+    @Test
+    void invalidBlockSize() {
+        assertThatThrownBy(() -> new ParallelGZIPCompressor(pool, 0, 0))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("blockSize must be > 0");
+    }
+
+    private static byte[] message(final int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; sb.length() < length; i++) {
+            sb.append(i % 10);
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static int countMembers(final byte[] compressed) {
+        int members = 0;
+        for (int i = 0; i < compressed.length - 2; i++) {
+            // GZIP magic bytes followed by compression method "deflate"
+            if (compressed[i] == (byte) 0x1f && compressed[i + 1] == (byte) 0x8b && compressed[i + 2] == 8) {
+                members++;
+            }
+        }
+        return members;
+    }
+
+    private static byte[] decompress(final byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+
+}
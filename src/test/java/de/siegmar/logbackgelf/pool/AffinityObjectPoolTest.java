@@ -0,0 +1,222 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf.pool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class AffinityObjectPoolTest {
+
+    private final AtomicInteger ids = new AtomicInteger();
+    private final PooledObjectFactory<MyPooledObject> factory =
+        () -> new MyPooledObject(ids.incrementAndGet());
+
+    @Test
+    void affinity() throws InterruptedException {
+        final AffinityObjectPool<MyPooledObject> pool =
+            new AffinityObjectPool<>(factory, 4, 100, 100, 100);
+
+        try (pool) {
+            final MyPooledObject o1 = pool.borrowObject();
+            pool.returnObject(o1);
+
+            for (int i = 0; i < 10; i++) {
+                final MyPooledObject o2 = pool.borrowObject();
+                assertThat(o2).isSameAs(o1);
+                pool.returnObject(o2);
+            }
+        }
+    }
+
+    @Test
+    void steal() throws InterruptedException {
+        final AffinityObjectPool<MyPooledObject> pool =
+            new AffinityObjectPool<>(factory, 3, 100, 100, 100);
+
+        try (pool) {
+            final MyPooledObject o1 = pool.borrowObject();
+            final MyPooledObject o2 = pool.borrowObject();
+            final MyPooledObject o3 = pool.borrowObject();
+
+            assertThat(List.of(o1.getId(), o2.getId(), o3.getId()))
+                .containsExactlyInAnyOrder(1, 2, 3);
+
+            pool.returnObject(o1);
+            pool.returnObject(o2);
+            pool.returnObject(o3);
+        }
+    }
+
+    @Test
+    void invalidate() throws InterruptedException {
+        final AffinityObjectPool<MyPooledObject> pool =
+            new AffinityObjectPool<>(factory, 1, 100, 100, 100);
+
+        try (pool) {
+            for (int i = 1; i < 4; i++) {
+                final MyPooledObject o1 = pool.borrowObject();
+                assertThat(o1.getId()).isEqualTo(i);
+                pool.invalidateObject(o1);
+            }
+        }
+    }
+
+    @Test
+    void availableObjectsExhausted() throws InterruptedException {
+        final AffinityObjectPool<MyPooledObject> pool =
+            new AffinityObjectPool<>(factory, 1, 100, 100, 0);
+
+        try (pool) {
+            final Object o1 = pool.borrowObject();
+            assertThat(o1).isNotNull();
+
+            final Instant before = Instant.now();
+            assertThatThrownBy(pool::borrowObject)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Couldn't acquire connection from pool");
+            assertThat(Duration.between(before, Instant.now())).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+        }
+    }
+
+    @Test
+    void validatePoolSize() {
+        assertThatThrownBy(() -> new AffinityObjectPool<>(factory, 0, 100, 100, 0))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("poolSize must be > 0");
+    }
+
+    @Test
+    void infinitePollWaitTime() throws InterruptedException {
+        final Duration waitTime = Duration.ofMillis(200);
+
+        final AffinityObjectPool<MyPooledObject> pool =
+            new AffinityObjectPool<>(factory, 1, -1, 100, 0);
+
+        try (pool) {
+            final MyPooledObject o1 = pool.borrowObject();
+            final Instant before = Instant.now();
+
+            Executors.newScheduledThreadPool(1)
+                .schedule(() -> pool.returnObject(o1), waitTime.toMillis(), TimeUnit.MILLISECONDS);
+
+            final MyPooledObject o2 = pool.borrowObject();
+            final Instant after = Instant.now();
+
+            assertThat(o2).isSameAs(o1);
+            assertThat(Duration.between(before, after)).isGreaterThanOrEqualTo(waitTime);
+        }
+    }
+
+    @Test
+    void exclusiveUnderContention() throws Exception {
+        final int threads = 16;
+        final AffinityObjectPool<MyPooledObject> pool =
+            new AffinityObjectPool<>(factory, 3, -1, -1, -1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try (pool) {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        pool.execute(o -> {
+                            assertThat(o.inUse.incrementAndGet()).isEqualTo(1);
+                            o.inUse.decrementAndGet();
+                        });
+                    }
+                    return null;
+                }));
+            }
+
+            for (final Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasValue(3);
+    }
+
+    @Test
+    void moreWaitersThanObjects() throws Exception {
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            // Every round ends with all objects being returned - a lost wakeup would leave a
+            // waiter parked forever (no max wait time)
+            for (int round = 0; round < 2_000; round++) {
+                final AffinityObjectPool<MyPooledObject> pool =
+                    new AffinityObjectPool<>(factory, 2, -1, -1, -1);
+                final CountDownLatch startSignal = new CountDownLatch(1);
+
+                try (pool) {
+                    final List<Future<?>> futures = new ArrayList<>();
+                    for (int t = 0; t < threads; t++) {
+                        futures.add(executor.submit(() -> {
+                            startSignal.await();
+                            for (int i = 0; i < 3; i++) {
+                                pool.execute(o -> Thread.yield());
+                            }
+                            return null;
+                        }));
+                    }
+
+                    startSignal.countDown();
+                    for (final Future<?> future : futures) {
+                        future.get(10, TimeUnit.SECONDS);
+                    }
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static final class MyPooledObject extends BasePooledObject {
+
+        private final int id;
+        private final AtomicInteger inUse = new AtomicInteger();
+
+        MyPooledObject(final int id) {
+            this.id = id;
+        }
+
+        int getId() {
+            return id;
+        }
+
+    }
+
+}
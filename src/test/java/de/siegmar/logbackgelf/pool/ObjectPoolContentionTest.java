@@ -0,0 +1,99 @@
+/*
+ * Logback GELF - zero dependencies Logback GELF appender library.
+ * Copyright (C) 2026 Oliver Siegmar
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301  USA
+ */
+
+package de.siegmar.logbackgelf.pool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/**
+ * Verifies that the pool implementations never hand out an object to more than one thread at a
+ * time - with many threads and few objects.
+ */
+class ObjectPoolContentionTest {
+
+    private static final int THREADS = 16;
+    private static final int POOL_SIZE = 4;
+    private static final int ITERATIONS = 10_000;
+
+    static Stream<Supplier<AbstractObjectPool<BasePooledObject>>> pools() {
+        return Stream.of(
+            () -> new SimpleObjectPool<>(BasePooledObject::new, POOL_SIZE, -1, -1, -1),
+            () -> new AffinityObjectPool<>(BasePooledObject::new, POOL_SIZE, -1, -1, -1)
+        );
+    }
+
+    @ParameterizedTest
+    @MethodSource("pools")
+    void exclusiveUse(final Supplier<AbstractObjectPool<BasePooledObject>> poolSupplier) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final CountDownLatch startSignal = new CountDownLatch(1);
+        final Set<BasePooledObject> inUse = ConcurrentHashMap.newKeySet();
+        final Set<BasePooledObject> used = ConcurrentHashMap.newKeySet();
+        final AtomicInteger conflicts = new AtomicInteger();
+        final AtomicInteger executions = new AtomicInteger();
+
+        try (AbstractObjectPool<BasePooledObject> pool = poolSupplier.get()) {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    startSignal.await();
+                    for (int i = 0; i < ITERATIONS; i++) {
+                        pool.execute(o -> {
+                            if (!inUse.add(o)) {
+                                conflicts.incrementAndGet();
+                            }
+                            used.add(o);
+                            executions.incrementAndGet();
+                            inUse.remove(o);
+                        });
+                    }
+                    return null;
+                }));
+            }
+
+            startSignal.countDown();
+            for (final Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(conflicts).hasValue(0);
+        assertThat(executions).hasValue(THREADS * ITERATIONS);
+        assertThat(used).hasSizeLessThanOrEqualTo(POOL_SIZE);
+    }
+
+}
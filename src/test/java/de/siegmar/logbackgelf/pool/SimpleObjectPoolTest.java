@@ -21,11 +21,18 @@ package de.siegmar.logbackgelf.pool;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 
@@ -170,9 +177,175 @@ class SimpleObjectPoolTest {
         }
     }
 
+    @Test
+    void backgroundCreation() throws InterruptedException {
+        final CountDownLatch created = new CountDownLatch(1);
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+        final SimpleObjectPool<MyPooledObject> pool = new SimpleObjectPool<>(() -> {
+            try {
+                created.await();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return factory.newInstance();
+        }, 1, 100, 100, 100, executor, 0);
+
+        try (pool) {
+            // The object is not available before the factory returned
+            assertThatThrownBy(pool::borrowObject)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("Couldn't acquire connection from pool");
+
+            created.countDown();
+
+            final MyPooledObject o1 = pool.borrowObject();
+            assertThat(o1.getId()).isEqualTo(1);
+
+            // The replacement is created in the background as well
+            pool.invalidateObject(o1);
+            assertThat(pool.borrowObject().getId()).isEqualTo(2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void invalidateAfterExecutorShutdown() throws InterruptedException {
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+        final SimpleObjectPool<MyPooledObject> pool =
+            new SimpleObjectPool<>(factory, 1, 100, 100, 100, executor, 0);
+
+        try (pool) {
+            final MyPooledObject o1 = await().atMost(Duration.ofSeconds(5))
+                .ignoreExceptions()
+                .until(pool::borrowObject, o -> o != null);
+
+            // The replacement is created by the current thread instead of the rejecting executor
+            executor.shutdownNow();
+            pool.invalidateObject(o1);
+            assertThat(pool.borrowObject().getId()).isEqualTo(2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void backgroundRotation() throws InterruptedException {
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        final Thread testThread = Thread.currentThread();
+        final AtomicBoolean createdByBorrower = new AtomicBoolean();
+        final AtomicInteger created = new AtomicInteger();
+
+        final SimpleObjectPool<MyPooledObject> pool = new SimpleObjectPool<>(() -> {
+            createdByBorrower.compareAndSet(false, Thread.currentThread() == testThread);
+            created.incrementAndGet();
+            return factory.newInstance();
+        }, 1, 1000, 3, -1, executor, 0);
+
+        try (pool) {
+            final MyPooledObject o1 = pool.borrowObject();
+            assertThat(o1.getId()).isEqualTo(1);
+
+            // The object is replaced ahead of its expiry - after it has been returned
+            await().atMost(Duration.ofSeconds(5)).until(() -> created.get() == 2);
+            pool.returnObject(o1);
+
+            final MyPooledObject o2 = pool.borrowObject();
+            assertThat(o2).isNotSameAs(o1);
+            assertThat(createdByBorrower).isFalse();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void lifeTimeJitter() throws InterruptedException {
+        final SimpleObjectPool<MyPooledObject> pool =
+            new SimpleObjectPool<>(factory, 10, 100, 100, -1, null, 50);
+
+        try (pool) {
+            final Set<Long> maxLifeTimes = new HashSet<>();
+            for (int i = 0; i < 10; i++) {
+                maxLifeTimes.add(pool.borrowObject().getMaxLifeTime());
+            }
+
+            assertThat(maxLifeTimes)
+                .hasSizeGreaterThan(1)
+                .allSatisfy(t -> assertThat(t).isBetween(50_000L, 100_000L));
+        }
+    }
+
+    @Test
+    void replaceObject() throws InterruptedException {
+        final SimpleObjectPool<MyPooledObject> pool =
+            new SimpleObjectPool<>(factory, 1, 100, -1, -1);
+
+        try (pool) {
+            final MyPooledObject o1 = pool.borrowObject();
+            pool.returnObject(o1);
+
+            // An idle object is swapped immediately
+            assertThat(pool.replaceObject(o1)).isTrue();
+            final MyPooledObject o2 = pool.borrowObject();
+            assertThat(o2.getId()).isEqualTo(2);
+
+            // A borrowed object is swapped when it is returned
+            assertThat(pool.replaceObject(o2)).isTrue();
+            assertThat(pool.replaceObject(o2)).isFalse();
+            pool.returnObject(o2);
+
+            final MyPooledObject o3 = pool.borrowObject();
+            assertThat(o3.getId()).isEqualTo(3);
+            pool.returnObject(o3);
+
+            assertThat(pool.replaceObject(o1)).isFalse();
+        }
+    }
+
+    @Test
+    void deadObjects() throws InterruptedException {
+        final SimpleObjectPool<MyPooledObject> pool =
+            new SimpleObjectPool<>(factory, 2, 100, -1, -1);
+
+        try (pool) {
+            final MyPooledObject o1 = pool.borrowObject();
+            final MyPooledObject o2 = pool.borrowObject();
+            pool.returnObject(o1);
+            pool.returnObject(o2);
+
+            // Found dead when it is about to be handed out
+            o1.alive = false;
+            final MyPooledObject o3 = pool.borrowObject();
+            assertThat(o3.getId()).isEqualTo(3);
+            assertThat(pool.getDeadObjectCount()).isOne();
+            pool.returnObject(o3);
+
+            // Found dead by the background probe
+            o2.alive = false;
+            pool.probeIdleObjects();
+            assertThat(pool.getDeadObjectCount()).isEqualTo(2);
+
+            final Set<Integer> ids = new HashSet<>();
+            for (int i = 0; i < 2; i++) {
+                ids.add(pool.borrowObject().getId());
+            }
+            assertThat(ids).containsExactlyInAnyOrder(3, 4);
+        }
+    }
+
+    @Test
+    void validateLifeTimeJitter() {
+        assertThatThrownBy(() -> new SimpleObjectPool<>(factory, 1, 100, 100, 0, null, 101))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("lifeTimeJitter must be between 0 and 100");
+    }
+
     private static final class MyPooledObject extends BasePooledObject {
 
         private final int id;
+        private volatile boolean alive = true;
 
         MyPooledObject(final int id) {
             this.id = id;
@@ -182,6 +355,11 @@ class SimpleObjectPoolTest {
             return id;
         }
 
+        @Override
+        protected boolean isAlive() {
+            return alive;
+        }
+
     }
 
 }